@@ -0,0 +1,494 @@
+package com.berico.accumulo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableExistsException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Mutation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.berico.accumulo.ValueMutationOps.CompletionHandler;
+
+/**
+ * A collection of fluent Mutation Operations that do not block the caller.
+ *
+ * Terminal operations (value(...), submit(...)) hand the Mutation to a
+ * submission queue and return a Future immediately.  A dedicated thread drains
+ * the queue in batches, adds each batch to the writer and flushes it; the
+ * futures of a batch complete once the flush succeeds, or fail with the
+ * MutationsRejectedException that rejected it.  Callers can therefore keep
+ * thousands of writes in flight and only wait on the futures they care about.
+ *
+ * The queue is bounded by the estimated bytes of the queued Mutations; its
+ * policy decides whether a producer blocks, has the write dropped or gets an
+ * IngestQueueFullException when the writer falls behind (see BoundedIngestQueue).
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class AsyncMutationOps extends TableFluentExtension {
+	
+	private static final Logger logger = LoggerFactory.getLogger(AsyncMutationOps.class);
+	
+	/**
+	 * Maximum number of Mutations added to the writer between flushes.
+	 */
+	public static int MAX_BATCH_SIZE = 1000;
+	
+	/**
+	 * Settings of the writer.
+	 */
+	WriterConfig writerConfig = null;
+	
+	/**
+	 * The writer lease used by the submission thread.
+	 */
+	BatchWriter writer = null;
+	
+	/**
+	 * Mutations waiting to be written.
+	 */
+	BoundedIngestQueue queue = null;
+	
+	/**
+	 * Drains the queue into the writer.
+	 */
+	Thread submitter = null;
+	
+	volatile boolean running = true;
+	
+	/**
+	 * Initialize the extension with table name and outer fluent interface, using the
+	 * writer configuration set on Cirrus.
+	 * @param tableName Name of the table in scope.
+	 * @param cirrus The outer fluent interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException
+	 */
+	public AsyncMutationOps(String tableName, Cirrus cirrus)
+		throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException {
+		
+		this(tableName, cirrus, cirrus.writerConfig(), new BoundedIngestQueue());
+	}
+	
+	/**
+	 * Initialize the extension with table name, outer fluent interface and writer configuration,
+	 * using a blocking ingest queue of the default capacity.
+	 * @param tableName Name of the table in scope.
+	 * @param cirrus The outer fluent interface.
+	 * @param writerConfig Settings of the BatchWriter used by this chain.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException
+	 */
+	public AsyncMutationOps(String tableName, Cirrus cirrus, WriterConfig writerConfig)
+		throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException {
+		
+		this(tableName, cirrus, writerConfig, new BoundedIngestQueue());
+	}
+	
+	/**
+	 * Initialize the extension with table name, outer fluent interface, writer configuration
+	 * and ingest queue.
+	 * @param tableName Name of the table in scope.
+	 * @param cirrus The outer fluent interface.
+	 * @param writerConfig Settings of the BatchWriter used by this chain.
+	 * @param queue Queue holding Mutations until they are written; a queue serves only one chain.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException
+	 * @throws IllegalStateException If the queue already serves another chain.
+	 */
+	public AsyncMutationOps(String tableName, Cirrus cirrus, WriterConfig writerConfig, BoundedIngestQueue queue)
+		throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException {
+		
+		super(tableName, cirrus);
+		
+		this.writerConfig = writerConfig;
+		
+		// Its submissions carry no table; another chain would write them to its own.
+		queue.bind(this);
+		
+		this.queue = queue;
+		
+		this.writer = this.cirrus.lease(this.tableName, this.writerConfig);
+		
+		this.submitter = new Thread(new Submitter(), "cirrus-async-" + tableName);
+		
+		this.submitter.setDaemon(true);
+		
+		this.submitter.start();
+	}
+	
+	/* ############## Puts ############################################################################ */
+	
+	/**
+	 * Submit a creation/insertion mutation.
+	 * @param rowKey Row Key.
+	 * @param columnFamily Column Family
+	 * @param columnQualifer Column Qualifier
+	 * @return Fluent interface to set the value and timestamp; value(...) returns the Future of the write.
+	 */
+	public ValueMutationOps<Future<Mutation>> put(String rowKey, String columnFamily, String columnQualifer){
+		
+		return put(rowKey, new ColumnIdentifiers(columnFamily, columnQualifer));
+	}
+	
+	/**
+	 * Submit a creation/insertion mutation.
+	 * @param rowKey Row Key.
+	 * @param columnFamily Column Family
+	 * @param columnQualifer Column Qualifier
+	 * @param visibilityExpression Column Visibility Expression
+	 * @return Fluent interface to set the value and timestamp; value(...) returns the Future of the write.
+	 */
+	public ValueMutationOps<Future<Mutation>> put(String rowKey, String columnFamily, String columnQualifer, String visibilityExpression){
+		
+		return put(rowKey, new ColumnIdentifiers(columnFamily, columnQualifer, visibilityExpression));
+	}
+	
+	/**
+	 * Submit a creation/insertion mutation.
+	 * @param rowKey Row Key.
+	 * @param columnExpression Column Expression.
+	 * @return Fluent interface to set the value and timestamp; value(...) returns the Future of the write.
+	 */
+	public ValueMutationOps<Future<Mutation>> put(String rowKey, String columnExpression){
+		
+		return put(rowKey, new ColumnIdentifiers(columnExpression));
+	}
+	
+	/**
+	 * Submit a creation/insertion mutation.
+	 * @param rowKey Row Key.
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @return Fluent interface to set the value and timestamp; value(...) returns the Future of the write.
+	 */
+	public ValueMutationOps<Future<Mutation>> put(String rowKey, CompiledColumn column){
+		
+		return put(rowKey, column.identifiers);
+	}
+	
+	/**
+	 * Forms the mutation and the future it completes, and passes control to the ValueOps fluent interface.
+	 * @param rowKey Row Key
+	 * @param columnIdentifiers Column Identifiers
+	 * @return Fluent interface for setting the value and timestamp.
+	 */
+	ValueMutationOps<Future<Mutation>> put(String rowKey, ColumnIdentifiers columnIdentifiers){
+		
+		final MutationFuture future = new MutationFuture();
+		
+		return new ValueMutationOps<Future<Mutation>>(columnIdentifiers, new Mutation(rowKey), future, new CompletionHandler(){
+			@Override
+			public void complete(Mutation mutation) throws MutationsRejectedException {
+				
+				enqueue(mutation, future);
+			}
+		});
+	}
+	
+	/**
+	 * Submit a Mutation built elsewhere (e.g. one holding many cells of a row).
+	 * @param mutation Mutation to write.
+	 * @return Future of the write.
+	 */
+	public Future<Mutation> submit(Mutation mutation){
+		
+		MutationFuture future = new MutationFuture();
+		
+		enqueue(mutation, future);
+		
+		return future;
+	}
+	
+	/**
+	 * Number of Mutations waiting to be written.
+	 * @return Queue depth.
+	 */
+	public int pending(){
+		
+		return this.queue.size();
+	}
+	
+	/**
+	 * The ingest queue, for its depth and backpressure metrics.
+	 * @return Ingest queue.
+	 */
+	public BoundedIngestQueue queue(){
+		
+		return this.queue;
+	}
+	
+	/* ############## Submission ###################################################################### */
+	
+	void enqueue(Mutation mutation, MutationFuture future){
+		
+		if (!this.running){
+			
+			future.failed(new IllegalStateException("The chain is done; no more mutations can be submitted."));
+			
+			return;
+		}
+		
+		try {
+			
+			this.queue.offer(new Submission(mutation, future));
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			
+			future.failed(e);
+			
+			return;
+		}
+		
+		// The chain may have been closed between the check and the offer, after the submitter's
+		// last look at the queue; the submission must not be left pending.
+		if (!this.running){
+			
+			abandonLeftovers();
+		}
+	}
+	
+	/**
+	 * Wait for the submitter to stop, then fail whatever is still queued.
+	 */
+	void abandonLeftovers(){
+		
+		try {
+			
+			this.submitter.join();
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			
+			return;
+		}
+		
+		failQueued();
+	}
+	
+	/**
+	 * Fail every queued submission; only once the submitter has stopped (or from the submitter).
+	 */
+	void failQueued(){
+		
+		List<Submission> abandoned = new ArrayList<Submission>();
+		
+		this.queue.drainTo(abandoned, Integer.MAX_VALUE);
+		
+		fail(abandoned, new IllegalStateException("The chain is done; the mutation was not written."));
+	}
+	
+	/**
+	 * Write a batch of submissions and complete their futures.
+	 * @param batch Submissions taken from the queue.
+	 */
+	void write(List<Submission> batch){
+		
+		List<Mutation> mutations = new ArrayList<Mutation>(batch.size());
+		
+		for (Submission submission : batch){
+			
+			this.cirrus.writing(this.tableName, submission.mutation);
+			
+			mutations.add(submission.mutation);
+		}
+		
+		try {
+			
+			this.writer.addMutations(mutations);
+			
+			this.writer.flush();
+			
+			for (Submission submission : batch){
+				
+				this.cirrus.written(this.tableName, submission.mutation);
+				
+				submission.future.completed(submission.mutation);
+			}
+		}
+		catch (MutationsRejectedException e){
+			
+			fail(batch, e);
+			
+			try {
+				
+				renewLease();
+				
+			} catch (RuntimeException renewal) {
+				
+				logger.error("Cannot renew the writer for " + this.tableName, renewal);
+			}
+		}
+		catch (RuntimeException e){
+			
+			fail(batch, e);
+		}
+	}
+	
+	void fail(List<Submission> batch, Throwable cause){
+		
+		for (Submission submission : batch){
+			
+			submission.future.failed(cause);
+		}
+	}
+	
+	/**
+	 * A writer that rejected mutations is unusable; take a lease on its replacement.
+	 */
+	void renewLease(){
+		
+		try {
+			
+			this.writer.close();
+			
+		} catch (MutationsRejectedException e) {
+		} catch (RuntimeException e) {
+			
+			// Still take the new lease; the old one is of no use either way.
+			logger.warn("Failed to return the lease on the rejected writer for " + this.tableName, e);
+		}
+		
+		try {
+			
+			this.writer = this.cirrus.lease(this.tableName, this.writerConfig);
+			
+		} catch (TableNotFoundException e) {
+			
+			logger.error("Cannot renew the writer for " + this.tableName, e);
+			
+			this.running = false;
+		}
+	}
+	
+	/* ############## Transitions ##################################################################### */
+	
+	/**
+	 * Wait for every submitted mutation to be written, return the writer's lease and
+	 * go back to the Cirrus interface.
+	 */
+	@Override
+	public Cirrus and() {
+		
+		close();
+		
+		return super.and();
+	}
+	
+	/**
+	 * Wait for every submitted mutation to be written, return the writer's lease and
+	 * go back to the Cirrus interface.
+	 */
+	@Override
+	public Cirrus done() {
+		
+		close();
+		
+		return super.done();
+	}
+	
+	/**
+	 * Stop accepting mutations, drain the queue and return the writer's lease.
+	 */
+	void close(){
+		
+		this.running = false;
+		
+		abandonLeftovers();
+		
+		try {
+			
+			this.writer.close();
+			
+		} catch (MutationsRejectedException e) {
+			
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Drains the queue until the chain is done and the queue is empty.
+	 */
+	class Submitter implements Runnable {
+		
+		@Override
+		public void run() {
+			
+			List<Submission> batch = new ArrayList<Submission>();
+			
+			while (running || !queue.isEmpty()){
+				
+				try {
+					
+					Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+					
+					if (first == null){
+						
+						continue;
+					}
+					
+					batch.add(first);
+					
+					queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+					
+					write(batch);
+					
+				} catch (InterruptedException e) {
+					
+					fail(batch, e);
+					
+					break;
+					
+				} catch (RuntimeException e) {
+					
+					// The submitter must outlive a bad batch, or every queued future would hang.
+					logger.error("Failed to write a batch to " + tableName, e);
+					
+					fail(batch, e);
+				}
+				finally {
+					
+					batch.clear();
+				}
+			}
+			
+			// Anything still queued was submitted after the submitter stopped.
+			running = false;
+			
+			failQueued();
+		}
+	}
+	
+	/**
+	 * A Mutation and the future it completes.
+	 */
+	static class Submission {
+		
+		Mutation mutation;
+		MutationFuture future;
+		long size;
+		
+		Submission(Mutation mutation, MutationFuture future){
+			
+			this.mutation = mutation;
+			this.future = future;
+			this.size = mutation.estimatedMemoryUsed();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.berico.accumulo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * Fluent Interface for scanning many ranges in parallel with a BatchScanner.
+ *
+ * Unlike ScanOps, results are streamed back in no particular order, since
+ * each range may be served by a different tablet server.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class BatchScanOps extends FluentExtension {
+	
+	ScanOps parent;
+	BatchScanner scanner;
+	List<Range> ranges = new ArrayList<Range>();
+	
+	public BatchScanOps(ScanOps parent, BatchScanner scanner){
+		super(parent.cirrus);
+		
+		this.parent = parent;
+		this.scanner = scanner;
+	}
+	
+	/* ####### Ranges ########################################################################## */
+	
+	/**
+	 * Add a range to the scan.
+	 * @param range Range (see RangeBuilder).
+	 * @return Returns the fluent interface.
+	 */
+	public BatchScanOps range(Range range){
+		
+		this.ranges.add(range);
+		
+		return this;
+	}
+	
+	/**
+	 * Add a collection of ranges to the scan.
+	 * @param ranges Ranges (see RangeBuilder).
+	 * @return Returns the fluent interface.
+	 */
+	public BatchScanOps ranges(Collection<Range> ranges){
+		
+		this.ranges.addAll(ranges);
+		
+		return this;
+	}
+	
+	/**
+	 * Add an entire row to the scan.
+	 * @param rowId Row
+	 * @return Returns the fluent interface.
+	 */
+	public BatchScanOps row(String rowId){
+		
+		return range(RangeBuilder.exact(new KeyBuilder().row(rowId).build()));
+	}
+	
+	/**
+	 * Add a set of entire rows to the scan.
+	 * @param rowIds Rows
+	 * @return Returns the fluent interface.
+	 */
+	public BatchScanOps rows(String... rowIds){
+		
+		for (String rowId : rowIds){
+			
+			row(rowId);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Add a column family of a row to the scan.
+	 * @param rowId Row
+	 * @param columnFamily Column Family
+	 * @return Returns the fluent interface.
+	 */
+	public BatchScanOps family(String rowId, String columnFamily){
+		
+		return range(RangeBuilder.exact(new KeyBuilder().row(rowId).family(columnFamily).build()));
+	}
+	
+	/* ####### Results ######################################################################### */
+	
+	/**
+	 * Stream the raw results of the scan.
+	 * @return Iterator over every cell in the ranges.
+	 */
+	public Iterator<Entry<Key, Value>> entries(){
+		
+		// The BatchScanner refuses an empty set of ranges.
+		if (this.ranges.isEmpty()){
+			
+			return Collections.<Entry<Key, Value>>emptyList().iterator();
+		}
+		
+		this.scanner.setRanges(this.ranges);
+		
+		return this.scanner.iterator();
+	}
+	
+	/**
+	 * Stream the results of the scan as cell retrieval interfaces.
+	 * @return Iterator over every cell in the ranges.
+	 */
+	public Iterator<CellValueRetrievalOps> iterator(){
+		
+		return new CellValueRetrievalOpsIterator(this.parent, entries());
+	}
+	
+	/**
+	 * Stream the results of the scan, decoding each value as the supplied type.
+	 * @param clazz Type of the values.
+	 * @return Iterator over every cell in the ranges.
+	 * @throws UnsupportedDataTypeException Thrown if there is no Lexicoder for the type.
+	 */
+	public <V> TypedIterator<V> as(Class<V> clazz) throws UnsupportedDataTypeException {
+		
+		return new TypedIterator<V>(entries(), ConversionUtils.lexicoderFor(clazz));
+	}
+	
+	/**
+	 * Stream the results of the scan, decoding values as primitives.
+	 * @return Primitive iterator over every cell in the ranges.
+	 */
+	public PrimitiveCellIterator values(){
+		
+		return new PrimitiveCellIterator(entries());
+	}
+	
+	/**
+	 * Stream the results of the scan through a reusable cursor.
+	 * @return Cursor over every cell in the ranges.
+	 */
+	public CellCursor cursor(){
+		
+		return new CellCursor(entries());
+	}
+	
+	/* ####### Transitions ##################################################################### */
+	
+	/**
+	 * Release the BatchScanner's query threads.
+	 */
+	public void close(){
+		
+		this.scanner.close();
+	}
+	
+	/**
+	 * Close the BatchScanner and return to the ScanOps interface.
+	 * @return The ScanOps interface this batch scan was started from.
+	 */
+	public ScanOps endBatch(){
+		
+		close();
+		
+		return this.parent;
+	}
+	
+	/**
+	 * Close the BatchScanner and return to the Cirrus interface.
+	 */
+	@Override
+	public Cirrus and() {
+		
+		close();
+		
+		return super.and();
+	}
+	
+	/**
+	 * Close the BatchScanner and return to the Cirrus interface.
+	 */
+	@Override
+	public Cirrus done() {
+		
+		close();
+		
+		return super.done();
+	}
+}
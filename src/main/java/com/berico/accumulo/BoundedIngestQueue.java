@@ -0,0 +1,333 @@
+package com.berico.accumulo;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.berico.accumulo.AsyncMutationOps.Submission;
+
+/**
+ * A queue of Mutations bounded by their estimated size in bytes
+ * (Mutation.estimatedMemoryUsed()) rather than by their number, placed in front
+ * of the writer so that producers feel backpressure when the tablet servers
+ * slow down, instead of letting the heap fill with queued Mutations.
+ *
+ * What happens to a Mutation that does not fit is decided by the Policy.  A
+ * Mutation larger than the whole capacity is admitted when the queue is empty,
+ * so it can never block forever.
+ *
+ * A queue serves a single mutateAsync(...) chain: its submissions carry no
+ * table, so the chain that drains it writes everything to its own table.  Give
+ * each chain a new queue.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class BoundedIngestQueue {
+	
+	/**
+	 * Default capacity in bytes.
+	 */
+	public static long DEFAULT_CAPACITY = 64 * 1024 * 1024L;
+	
+	/**
+	 * What to do with a Mutation when the queue is full.
+	 */
+	public enum Policy {
+		
+		/**
+		 * Wait for space; the producer is slowed down to the writer's pace.
+		 */
+		BLOCK,
+		
+		/**
+		 * Discard the Mutation; its future fails with an IngestQueueFullException.
+		 */
+		DROP,
+		
+		/**
+		 * Throw an IngestQueueFullException to the producer.
+		 */
+		FAIL_FAST
+	}
+	
+	final long capacity;
+	
+	final Policy policy;
+	
+	LinkedList<Submission> submissions = new LinkedList<Submission>();
+	
+	long bytes = 0;
+	
+	long highWaterMark = 0;
+	
+	long accepted = 0;
+	
+	long dropped = 0;
+	
+	long rejected = 0;
+	
+	long blockedMillis = 0;
+	
+	/**
+	 * The chain draining the queue, once one has taken it.
+	 */
+	Object owner = null;
+	
+	/**
+	 * Initialize a blocking queue with the default capacity.
+	 */
+	public BoundedIngestQueue(){
+		
+		this(DEFAULT_CAPACITY, Policy.BLOCK);
+	}
+	
+	/**
+	 * Initialize the queue.
+	 * @param capacity Maximum estimated bytes of queued Mutations.
+	 * @param policy What to do with a Mutation when the queue is full.
+	 */
+	public BoundedIngestQueue(long capacity, Policy policy){
+		
+		if (capacity <= 0){
+			
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		
+		this.capacity = capacity;
+		this.policy = policy;
+	}
+	
+	/**
+	 * Dedicate the queue to the chain draining it.
+	 * @param owner The chain.
+	 * @throws IllegalStateException If another chain has already taken the queue.
+	 */
+	synchronized void bind(Object owner){
+		
+		if (this.owner != null && this.owner != owner){
+			
+			throw new IllegalStateException("The queue already serves another chain; give each chain its own queue.");
+		}
+		
+		this.owner = owner;
+	}
+	
+	/* ####### Producer ######################################################################## */
+	
+	/**
+	 * Queue a submission, applying the policy if there is no room for it.
+	 * @param submission Mutation and its future.
+	 * @return True if queued; false if it was dropped (its future has failed).
+	 * @throws InterruptedException If interrupted while blocked.
+	 * @throws IngestQueueFullException If the policy is FAIL_FAST and there is no room.
+	 */
+	synchronized boolean offer(Submission submission) throws InterruptedException {
+		
+		long size = submission.size;
+		
+		if (!hasRoomFor(size)){
+			
+			switch (this.policy){
+				
+				case DROP:
+					
+					this.dropped++;
+					
+					submission.future.failed(new IngestQueueFullException(this.capacity, this.bytes));
+					
+					return false;
+				
+				case FAIL_FAST:
+					
+					this.rejected++;
+					
+					throw new IngestQueueFullException(this.capacity, this.bytes);
+				
+				default:
+					
+					long started = System.currentTimeMillis();
+					
+					while (!hasRoomFor(size)){
+						
+						wait();
+					}
+					
+					this.blockedMillis += System.currentTimeMillis() - started;
+			}
+		}
+		
+		this.submissions.add(submission);
+		
+		this.bytes += size;
+		
+		this.accepted++;
+		
+		if (this.bytes > this.highWaterMark){
+			
+			this.highWaterMark = this.bytes;
+		}
+		
+		notifyAll();
+		
+		return true;
+	}
+	
+	boolean hasRoomFor(long size){
+		
+		return this.submissions.isEmpty() || this.bytes + size <= this.capacity;
+	}
+	
+	/* ####### Consumer ######################################################################## */
+	
+	/**
+	 * Take the oldest submission, waiting up to the timeout for one to arrive.
+	 * @param timeout How long to wait.
+	 * @param unit Unit of the timeout.
+	 * @return The submission, or null if none arrived.
+	 * @throws InterruptedException
+	 */
+	synchronized Submission poll(long timeout, TimeUnit unit) throws InterruptedException {
+		
+		long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+		
+		while (this.submissions.isEmpty()){
+			
+			long remaining = deadline - System.currentTimeMillis();
+			
+			if (remaining <= 0){
+				
+				return null;
+			}
+			
+			wait(remaining);
+		}
+		
+		Submission submission = this.submissions.removeFirst();
+		
+		released(submission);
+		
+		return submission;
+	}
+	
+	/**
+	 * Move up to maxElements of the oldest submissions into the list.
+	 * @param target Receives the submissions.
+	 * @param maxElements Maximum number to move.
+	 * @return Number moved.
+	 */
+	synchronized int drainTo(List<Submission> target, int maxElements){
+		
+		int drained = 0;
+		
+		while (drained < maxElements && !this.submissions.isEmpty()){
+			
+			Submission submission = this.submissions.removeFirst();
+			
+			released(submission);
+			
+			target.add(submission);
+			
+			drained++;
+		}
+		
+		return drained;
+	}
+	
+	void released(Submission submission){
+		
+		this.bytes -= submission.size;
+		
+		if (this.submissions.isEmpty()){
+			
+			this.bytes = 0;
+		}
+		
+		notifyAll();
+	}
+	
+	/* ####### Metrics ######################################################################### */
+	
+	/**
+	 * Number of queued Mutations.
+	 * @return Queue depth.
+	 */
+	public synchronized int size(){
+		
+		return this.submissions.size();
+	}
+	
+	public synchronized boolean isEmpty(){
+		
+		return this.submissions.isEmpty();
+	}
+	
+	/**
+	 * Estimated bytes of queued Mutations.
+	 * @return Queue depth in bytes.
+	 */
+	public synchronized long bytes(){
+		
+		return this.bytes;
+	}
+	
+	/**
+	 * Largest number of bytes that were queued at once.
+	 * @return High water mark in bytes.
+	 */
+	public synchronized long highWaterMark(){
+		
+		return this.highWaterMark;
+	}
+	
+	/**
+	 * Number of Mutations queued so far.
+	 * @return Accepted count.
+	 */
+	public synchronized long accepted(){
+		
+		return this.accepted;
+	}
+	
+	/**
+	 * Number of Mutations discarded by the DROP policy.
+	 * @return Dropped count.
+	 */
+	public synchronized long dropped(){
+		
+		return this.dropped;
+	}
+	
+	/**
+	 * Number of Mutations refused by the FAIL_FAST policy.
+	 * @return Rejected count.
+	 */
+	public synchronized long rejected(){
+		
+		return this.rejected;
+	}
+	
+	/**
+	 * Total milliseconds producers spent waiting for room (BLOCK policy).
+	 * @return Blocked time in milliseconds.
+	 */
+	public synchronized long blockedMillis(){
+		
+		return this.blockedMillis;
+	}
+	
+	public long getCapacity() {
+		return capacity;
+	}
+	
+	public Policy getPolicy() {
+		return policy;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		
+		return String.format("BoundedIngestQueue[policy=%s, depth=%d, bytes=%d/%d, highWaterMark=%d, accepted=%d, dropped=%d, rejected=%d, blockedMillis=%d]",
+			this.policy, this.submissions.size(), this.bytes, this.capacity, this.highWaterMark,
+			this.accepted, this.dropped, this.rejected, this.blockedMillis);
+	}
+}
@@ -0,0 +1,355 @@
+package com.berico.accumulo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableExistsException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.berico.accumulo.ValueMutationOps.CompletionHandler;
+
+/**
+ * Loads cells into a table through bulk import rather than a BatchWriter,
+ * for initial loads of many millions of cells.
+ *
+ * Cells are added with the same put(row, "cf:cq[:vis]").value(...) calls as
+ * MutationOps.  They are sorted in memory and spilled to local RFiles (sorted
+ * runs) whenever the buffer passes the run size.  load() merges the runs,
+ * writing one RFile per tablet of the table's current splits to the import
+ * directory, and then calls TableOperations.importDirectory(...).
+ *
+ * The import directory must be readable by the tablet servers: the default,
+ * a local temporary directory, suits a MockInstance or a single-node
+ * instance; pass an HDFS path to bulkLoad(directory) for a cluster.  Cells
+ * without a timestamp are given the time the load started.  Rows are added to
+ * the table's row filters (TableOps.rowFilter(...)) as they are put.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class BulkLoadOps extends TableFluentExtension {
+	
+	private static final Logger logger = LoggerFactory.getLogger(BulkLoadOps.class);
+	
+	/**
+	 * Default estimated bytes of cells sorted in memory before a run is spilled.
+	 */
+	public static long DEFAULT_RUN_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * Estimated bytes of bookkeeping per buffered cell, on top of its key and value.
+	 */
+	static final int CELL_OVERHEAD = 64;
+	
+	Configuration conf = new Configuration();
+	
+	/**
+	 * Directory the per-tablet RFiles are written to and imported from, and the directory
+	 * Accumulo moves files it fails to import to.
+	 */
+	Path importDirectory;
+	Path failureDirectory;
+	
+	/**
+	 * Parent of the import and failure directories, if it is a temporary directory
+	 * created for this load (and deleted with it); otherwise null.
+	 */
+	Path temporaryDirectory = null;
+	
+	/**
+	 * Cells sorted in memory and spilled to local runs.
+	 */
+	SortedRuns sortedRuns;
+	
+	/**
+	 * Timestamp of cells put without one.
+	 */
+	final long timestamp = System.currentTimeMillis();
+	
+	long cells = 0;
+	
+	/**
+	 * Initialize a bulk load into a local temporary directory.
+	 * @param tableName Name of the table in scope.
+	 * @param cirrus The outer fluent interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws IOException
+	 */
+	public BulkLoadOps(String tableName, Cirrus cirrus)
+		throws AccumuloException, AccumuloSecurityException, TableExistsException, IOException {
+		
+		this(tableName, cirrus, null);
+	}
+	
+	/**
+	 * Initialize a bulk load.
+	 * @param tableName Name of the table in scope.
+	 * @param cirrus The outer fluent interface.
+	 * @param directory Directory (Hadoop path, e.g. on HDFS) the tablet servers import from;
+	 * it should be new or empty.  Null uses a local temporary directory.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws IOException
+	 */
+	public BulkLoadOps(String tableName, Cirrus cirrus, String directory)
+		throws AccumuloException, AccumuloSecurityException, TableExistsException, IOException {
+		
+		super(tableName, cirrus);
+		
+		this.sortedRuns = new SortedRuns(temporaryDirectory("cirrus-bulk-" + tableName), DEFAULT_RUN_SIZE);
+		
+		if (directory == null){
+			
+			this.temporaryDirectory = new Path(temporaryDirectory("cirrus-import-" + tableName).toURI());
+		}
+		
+		Path base = (directory == null)? this.temporaryDirectory : new Path(directory);
+		
+		this.importDirectory = new Path(base, "files");
+		this.failureDirectory = new Path(base, "failures");
+		
+		FileSystem fs = base.getFileSystem(this.conf);
+		
+		fs.mkdirs(this.importDirectory);
+		fs.mkdirs(this.failureDirectory);
+	}
+	
+	static File temporaryDirectory(String prefix) throws IOException {
+		
+		File directory = File.createTempFile(prefix, "");
+		
+		if (!directory.delete() || !directory.mkdirs()){
+			
+			throw new IOException("Could not create the directory " + directory);
+		}
+		
+		return directory;
+	}
+	
+	/**
+	 * Set the estimated bytes of cells sorted in memory before a run is spilled to disk.
+	 * @param runSize Bytes per run.
+	 * @return Returns the fluent interface.
+	 */
+	public BulkLoadOps runSize(long runSize){
+		
+		this.sortedRuns.runSize = runSize;
+		
+		return this;
+	}
+	
+	/* ####### Cells ########################################################################### */
+	
+	/**
+	 * Add a cell.
+	 * @param rowKey Row Key.
+	 * @param columnFamily Column Family
+	 * @param columnQualifer Column Qualifier
+	 * @return Fluent interface to set the value and timestamp.
+	 */
+	public ValueMutationOps<BulkLoadOps> put(String rowKey, String columnFamily, String columnQualifer){
+		
+		return put(rowKey, new ColumnIdentifiers(columnFamily, columnQualifer));
+	}
+	
+	/**
+	 * Add a cell.
+	 * @param rowKey Row Key.
+	 * @param columnFamily Column Family
+	 * @param columnQualifer Column Qualifier
+	 * @param visibilityExpression Column Visibility Expression
+	 * @return Fluent interface to set the value and timestamp.
+	 */
+	public ValueMutationOps<BulkLoadOps> put(String rowKey, String columnFamily, String columnQualifer, String visibilityExpression){
+		
+		return put(rowKey, new ColumnIdentifiers(columnFamily, columnQualifer, visibilityExpression));
+	}
+	
+	/**
+	 * Add a cell.
+	 * @param rowKey Row Key.
+	 * @param columnExpression Column Expression.
+	 * @return Fluent interface to set the value and timestamp.
+	 */
+	public ValueMutationOps<BulkLoadOps> put(String rowKey, String columnExpression){
+		
+		return put(rowKey, new ColumnIdentifiers(columnExpression));
+	}
+	
+	/**
+	 * Add a cell.
+	 * @param rowKey Row Key.
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @return Fluent interface to set the value and timestamp.
+	 */
+	public ValueMutationOps<BulkLoadOps> put(String rowKey, CompiledColumn column){
+		
+		return put(rowKey, column.identifiers);
+	}
+	
+	ValueMutationOps<BulkLoadOps> put(String rowKey, ColumnIdentifiers columnIdentifiers){
+		
+		return new ValueMutationOps<BulkLoadOps>(columnIdentifiers, new Mutation(rowKey), this, new CompletionHandler(){
+			@Override
+			public void complete(Mutation mutation) throws MutationsRejectedException {
+				
+				add(mutation);
+			}
+		});
+	}
+	
+	/**
+	 * Buffer the cells of a mutation, spilling a sorted run if the buffer is full.  The row
+	 * is added to the table's row filters now, before load() can make it visible.
+	 * @param mutation Mutation holding the cells.
+	 */
+	void add(Mutation mutation){
+		
+		this.cirrus.writing(this.tableName, mutation);
+		
+		byte[] row = mutation.getRow();
+		
+		for (ColumnUpdate update : mutation.getUpdates()){
+			
+			Key key = new Key(row, update.getColumnFamily(), update.getColumnQualifier(),
+				update.getColumnVisibility(), (update.hasTimestamp())? update.getTimestamp() : this.timestamp,
+				update.isDeleted(), true);
+			
+			Value value = new Value(update.getValue());
+			
+			long bytes = CELL_OVERHEAD + row.length + update.getColumnFamily().length
+				+ update.getColumnQualifier().length + update.getColumnVisibility().length + value.getSize();
+			
+			try {
+				
+				this.sortedRuns.add(key, value, bytes);
+				
+			} catch (IOException e) {
+				
+				throw new IllegalStateException("Could not spill a sorted run to " + this.sortedRuns.directory, e);
+			}
+			
+			this.cells++;
+		}
+	}
+	
+	/* ####### Loading ######################################################################### */
+	
+	/**
+	 * Merge the sorted runs into one RFile per tablet and import them into the table.  The runs
+	 * and temporary directories are deleted whether or not the load succeeds; files that fail
+	 * to import are left in the failure directory.
+	 * @return The outer fluent interface.
+	 * @throws IOException
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableNotFoundException
+	 */
+	public Cirrus load() throws IOException, AccumuloException, AccumuloSecurityException, TableNotFoundException {
+		
+		FileStatus[] failures = null;
+		
+		try {
+			
+			this.sortedRuns.spill();
+			
+			List<Text> splits = new ArrayList<Text>(this.table.getSplits(this.tableName));
+			
+			int files = this.sortedRuns.merge(splits, this.importDirectory);
+			
+			if (files > 0){
+				
+				logger.info("Importing " + this.cells + " cells in " + files + " files from " + this.importDirectory);
+				
+				this.table.importDirectory(this.tableName,
+					this.importDirectory.toString(), this.failureDirectory.toString(), false);
+				
+				this.cirrus.tableChanged(this.tableName);
+			}
+			
+			failures = this.failureDirectory.getFileSystem(this.conf).listStatus(this.failureDirectory);
+		}
+		finally {
+			
+			cleanUp(failures != null && failures.length > 0);
+		}
+		
+		if (failures != null && failures.length > 0){
+			
+			throw new IOException(failures.length + " files failed to import; see " + this.failureDirectory);
+		}
+		
+		return this.cirrus;
+	}
+	
+	/**
+	 * Delete the runs, the RFiles left in the import directory, and the temporary import
+	 * directory (unless files failed to import into it).
+	 * @param keepFailures Keep the failure directory.
+	 */
+	void cleanUp(boolean keepFailures){
+		
+		try {
+			
+			this.sortedRuns.delete();
+			
+		} catch (IOException e) {
+			
+			logger.warn("Could not delete the sorted runs in " + this.sortedRuns.directory, e);
+		}
+		
+		try {
+			
+			FileSystem fs = this.importDirectory.getFileSystem(this.conf);
+			
+			if (this.temporaryDirectory != null && !keepFailures){
+				
+				fs.delete(this.temporaryDirectory, true);
+			}
+			else {
+				
+				fs.delete(this.importDirectory, true);
+			}
+			
+		} catch (IOException e) {
+			
+			logger.warn("Could not delete the import directory " + this.importDirectory, e);
+		}
+	}
+	
+	/**
+	 * Number of cells added.
+	 * @return Cell count.
+	 */
+	public long cells(){
+		
+		return this.cells;
+	}
+	
+	/**
+	 * Number of sorted runs spilled so far.
+	 * @return Run count.
+	 */
+	public int runs(){
+		
+		return this.sortedRuns.size();
+	}
+}
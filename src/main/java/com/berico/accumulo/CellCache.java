@@ -0,0 +1,508 @@
+package com.berico.accumulo;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+
+/**
+ * A bounded, read-through cache of the cells returned by ScanOps.cell(...),
+ * so that repeatedly reading the same reference cells does not cost a scan
+ * each time.
+ *
+ * Cells are keyed by table, row, family and qualifier, and within that by
+ * authorizations and visibility.  The cache is bounded by the estimated
+ * bytes of its cells, evicting the least recently used column, and entries
+ * expire after a TTL.  Mutations written through Cirrus (MutationOps,
+ * AsyncMutationOps) invalidate the columns they touch once they are flushed;
+ * writes made by other clients are only seen once the TTL expires.
+ *
+ * A miss is filled by a scan, which may race a write: the caller takes a
+ * stamp before scanning, and the scanned cell is only cached if no
+ * invalidation touched the column since (stamps are kept per stripe of
+ * columns, so an unrelated write occasionally skips a put as well).
+ *
+ * One cache is shared by every Cirrus on the same connection, and it is
+ * disabled until Cirrus.cellCache(maxBytes, ttl) sizes it.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class CellCache {
+	
+	/**
+	 * Default milliseconds a cell is trusted before it is scanned again.
+	 */
+	public static long DEFAULT_TTL = 60000L;
+	
+	/**
+	 * Estimated bytes of bookkeeping per cached cell, on top of its key and value.
+	 */
+	static final int CELL_OVERHEAD = 128;
+	
+	/**
+	 * Number of invalidation stamps; columns share a stamp by hash.
+	 */
+	static final int STAMP_STRIPES = 64;
+	
+	/**
+	 * Maximum estimated bytes held; 0 disables the cache.
+	 */
+	volatile long maxBytes = 0;
+	
+	volatile long ttl = DEFAULT_TTL;
+	
+	/**
+	 * Columns in access order (eldest first); guarded by this.
+	 */
+	final LinkedHashMap<Address, Column> columns = new LinkedHashMap<Address, Column>(16, 0.75f, true);
+	
+	/**
+	 * Estimated bytes held; guarded by this.
+	 */
+	long bytes = 0;
+	
+	/**
+	 * Invalidation counts, by stripe of columns; guarded by this.
+	 */
+	final long[] stamps = new long[STAMP_STRIPES];
+	
+	final AtomicLong hits = new AtomicLong();
+	
+	final AtomicLong misses = new AtomicLong();
+	
+	final AtomicLong evictions = new AtomicLong();
+	
+	final AtomicLong invalidations = new AtomicLong();
+	
+	/**
+	 * Size the cache, evicting cells if it shrinks.
+	 * @param maxBytes Maximum estimated bytes held; 0 disables the cache.
+	 * @param ttl Milliseconds a cell is trusted before it is scanned again.
+	 * @return The cache.
+	 */
+	public synchronized CellCache configure(long maxBytes, long ttl){
+		
+		this.maxBytes = maxBytes;
+		this.ttl = ttl;
+		
+		trim();
+		
+		return this;
+	}
+	
+	public boolean isEnabled(){
+		
+		return this.maxBytes > 0;
+	}
+	
+	/* ####### Lookups ######################################################################### */
+	
+	/**
+	 * Get a cached cell.
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations the cell was read with.
+	 * @param row Row
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 * @param visibility Visibility of the cell, or null for any visibility.
+	 * @return A copy of the cell, or null if it is not cached or has expired.
+	 */
+	public Entry<Key, Value> get(String tableName, Authorizations authorizations,
+			String row, String family, String qualifier, String visibility){
+		
+		Cell cell = null;
+		
+		synchronized (this){
+			
+			Column column = this.columns.get(new Address(tableName, row, family, qualifier));
+			
+			if (column != null){
+				
+				cell = column.cells.get(Column.variant(authorizations, visibility));
+				
+				if (cell != null && cell.isExpired()){
+					
+					column.remove(Column.variant(authorizations, visibility));
+					
+					this.bytes -= cell.bytes;
+					
+					if (column.cells.isEmpty()){
+						
+						this.columns.remove(new Address(tableName, row, family, qualifier));
+					}
+					
+					cell = null;
+				}
+			}
+		}
+		
+		if (cell == null){
+			
+			this.misses.incrementAndGet();
+			
+			return null;
+		}
+		
+		this.hits.incrementAndGet();
+		
+		return new SimpleImmutableEntry<Key, Value>(new Key(cell.key), new Value(cell.value.get().clone()));
+	}
+	
+	/**
+	 * Take the stamp of a column before scanning it, to pass to put(...).
+	 * @param tableName Name of the table.
+	 * @param row Row
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 * @return Stamp
+	 */
+	public synchronized long stamp(String tableName, String row, String family, String qualifier){
+		
+		return this.stamps[stripe(new Address(tableName, row, family, qualifier))];
+	}
+	
+	/**
+	 * Cache a cell read from the table.
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations the cell was read with.
+	 * @param row Row
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 * @param visibility Visibility the cell was looked up with, or null for any visibility.
+	 * @param entry The cell.
+	 */
+	public void put(String tableName, Authorizations authorizations,
+			String row, String family, String qualifier, String visibility, Entry<Key, Value> entry){
+		
+		put(tableName, authorizations, row, family, qualifier, visibility, entry,
+			stamp(tableName, row, family, qualifier));
+	}
+	
+	/**
+	 * Cache a cell read from the table, unless the column was invalidated since the stamp
+	 * was taken (the scan may have read the cell before a write that was flushed since).
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations the cell was read with.
+	 * @param row Row
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 * @param visibility Visibility the cell was looked up with, or null for any visibility.
+	 * @param entry The cell.
+	 * @param stamp Stamp taken by stamp(...) before the cell was scanned.
+	 */
+	public void put(String tableName, Authorizations authorizations,
+			String row, String family, String qualifier, String visibility, Entry<Key, Value> entry, long stamp){
+		
+		if (!isEnabled()){
+			
+			return;
+		}
+		
+		Cell cell = new Cell(entry.getKey(), entry.getValue(), this.ttl);
+		
+		synchronized (this){
+			
+			Address address = new Address(tableName, row, family, qualifier);
+			
+			if (this.stamps[stripe(address)] != stamp){
+				
+				return;
+			}
+			
+			Column column = this.columns.get(address);
+			
+			if (column == null){
+				
+				column = new Column();
+				
+				this.columns.put(address, column);
+			}
+			
+			Cell replaced = column.cells.put(Column.variant(authorizations, visibility), cell);
+			
+			column.bytes += cell.bytes;
+			
+			this.bytes += cell.bytes;
+			
+			if (replaced != null){
+				
+				column.bytes -= replaced.bytes;
+				
+				this.bytes -= replaced.bytes;
+			}
+			
+			trim();
+		}
+	}
+	
+	static int stripe(Address address){
+		
+		return (address.hashCode() & Integer.MAX_VALUE) % STAMP_STRIPES;
+	}
+	
+	/**
+	 * Invalidate every stripe (the whole cache or a whole table changed); caller holds the lock.
+	 */
+	void stampAll(){
+		
+		for (int i = 0; i < STAMP_STRIPES; i++){
+			
+			this.stamps[i]++;
+		}
+	}
+	
+	/**
+	 * Evict the least recently used columns until the cache fits; caller holds the lock.
+	 */
+	void trim(){
+		
+		Iterator<Column> eldest = this.columns.values().iterator();
+		
+		while (this.bytes > this.maxBytes && eldest.hasNext()){
+			
+			this.bytes -= eldest.next().bytes;
+			
+			eldest.remove();
+			
+			this.evictions.incrementAndGet();
+		}
+	}
+	
+	/* ####### Invalidation #################################################################### */
+	
+	/**
+	 * Forget every column the mutation writes or deletes, in every visibility and
+	 * authorization.
+	 * @param tableName Name of the table the mutation is written to.
+	 * @param mutation The mutation.
+	 */
+	public void invalidate(String tableName, Mutation mutation){
+		
+		if (!isEnabled()){
+			
+			return;
+		}
+		
+		String row = new String(mutation.getRow(), ConversionUtils.UTF8);
+		
+		for (ColumnUpdate update : mutation.getUpdates()){
+			
+			invalidate(tableName, row,
+				new String(update.getColumnFamily(), ConversionUtils.UTF8),
+				new String(update.getColumnQualifier(), ConversionUtils.UTF8));
+		}
+	}
+	
+	/**
+	 * Forget a column, in every visibility and authorization.
+	 * @param tableName Name of the table.
+	 * @param row Row
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 */
+	public synchronized void invalidate(String tableName, String row, String family, String qualifier){
+		
+		Address address = new Address(tableName, row, family, qualifier);
+		
+		this.stamps[stripe(address)]++;
+		
+		Column column = this.columns.remove(address);
+		
+		if (column != null){
+			
+			this.bytes -= column.bytes;
+			
+			this.invalidations.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Forget every cell of the table (e.g. after its rows were removed).
+	 * @param tableName Name of the table.
+	 */
+	public synchronized void invalidate(String tableName){
+		
+		stampAll();
+		
+		Iterator<Entry<Address, Column>> entries = this.columns.entrySet().iterator();
+		
+		while (entries.hasNext()){
+			
+			Entry<Address, Column> entry = entries.next();
+			
+			if (entry.getKey().tableName.equals(tableName)){
+				
+				this.bytes -= entry.getValue().bytes;
+				
+				entries.remove();
+				
+				this.invalidations.incrementAndGet();
+			}
+		}
+	}
+	
+	/**
+	 * Forget every cell.
+	 */
+	public synchronized void clear(){
+		
+		stampAll();
+		
+		this.columns.clear();
+		
+		this.bytes = 0;
+	}
+	
+	/* ####### Metrics ######################################################################### */
+	
+	/**
+	 * Number of columns held.
+	 * @return Size
+	 */
+	public synchronized int size(){
+		
+		return this.columns.size();
+	}
+	
+	/**
+	 * Estimated bytes held.
+	 * @return Bytes
+	 */
+	public synchronized long bytes(){
+		
+		return this.bytes;
+	}
+	
+	public long hits(){
+		
+		return this.hits.get();
+	}
+	
+	public long misses(){
+		
+		return this.misses.get();
+	}
+	
+	public long evictions(){
+		
+		return this.evictions.get();
+	}
+	
+	public long invalidations(){
+		
+		return this.invalidations.get();
+	}
+	
+	@Override
+	public String toString() {
+		
+		return "CellCache [size=" + size() + ", bytes=" + bytes() + ", maxBytes=" + this.maxBytes
+			+ ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions()
+			+ ", invalidations=" + invalidations() + "]";
+	}
+	
+	/* ####### Entries ######################################################################### */
+	
+	/**
+	 * Table, row, family and qualifier of a column.
+	 */
+	static final class Address {
+		
+		final String tableName;
+		final String row;
+		final String family;
+		final String qualifier;
+		
+		Address(String tableName, String row, String family, String qualifier){
+			
+			this.tableName = tableName;
+			this.row = row;
+			this.family = family;
+			this.qualifier = qualifier;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			
+			if (!(o instanceof Address)){
+				
+				return false;
+			}
+			
+			Address other = (Address) o;
+			
+			return this.tableName.equals(other.tableName) && this.row.equals(other.row)
+				&& this.family.equals(other.family) && this.qualifier.equals(other.qualifier);
+		}
+		
+		@Override
+		public int hashCode() {
+			
+			int hash = this.tableName.hashCode();
+			
+			hash = 31 * hash + this.row.hashCode();
+			hash = 31 * hash + this.family.hashCode();
+			
+			return 31 * hash + this.qualifier.hashCode();
+		}
+	}
+	
+	/**
+	 * The cached cells of a column, by authorizations and visibility.
+	 */
+	static final class Column {
+		
+		final Map<String, Cell> cells = new HashMap<String, Cell>(4);
+		
+		long bytes = 0;
+		
+		static String variant(Authorizations authorizations, String visibility){
+			
+			return authorizations + "\u0000" + ((visibility == null)? "\u0000" : visibility);
+		}
+		
+		void remove(String variant){
+			
+			Cell cell = this.cells.remove(variant);
+			
+			if (cell != null){
+				
+				this.bytes -= cell.bytes;
+			}
+		}
+	}
+	
+	/**
+	 * A copy of a cell and the time it stops being trusted.
+	 */
+	static final class Cell {
+		
+		final Key key;
+		final Value value;
+		final int bytes;
+		final long expiresAt;
+		
+		Cell(Key key, Value value, long ttl){
+			
+			this.key = new Key(key);
+			this.value = new Value(value.get().clone());
+			this.bytes = CELL_OVERHEAD + key.getRowData().length() + key.getColumnFamilyData().length()
+				+ key.getColumnQualifierData().length() + key.getColumnVisibilityData().length() + value.getSize();
+			this.expiresAt = System.currentTimeMillis() + ttl;
+		}
+		
+		boolean isExpired(){
+			
+			return System.currentTimeMillis() >= this.expiresAt;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.berico.accumulo;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * A cursor over scanned cells for streaming loops.  One SimpleKey is
+ * re-pointed at each cell on next(), instead of wrapping every cell in a new
+ * SimpleKey and Entry; the key's Strings are decoded only when asked for, and
+ * the ByteSequence accessors read the key's bytes without copying them.
+ * 
+ * The key and value belong to the current cell: copy anything that must
+ * outlive the next call to next().
+ * 
+ * <pre>
+ * CellCursor cursor = scanOps.cursor(range);
+ * while (cursor.hasNext()){
+ *   cursor.next();
+ *   total += cursor.asLong();
+ * }
+ * </pre>
+ * 
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class CellCursor {
+	
+	Iterator<Entry<Key, Value>> decoratedIterator;
+	
+	/**
+	 * Re-pointed at the current cell.
+	 */
+	SimpleKey key = new SimpleKey(null);
+	
+	Value value = null;
+	
+	public CellCursor(Iterator<Entry<Key, Value>> iterator){
+		
+		this.decoratedIterator = iterator;
+	}
+	
+	/**
+	 * Is there another cell?
+	 * @return true if next() will succeed.
+	 */
+	public boolean hasNext(){
+		
+		return this.decoratedIterator.hasNext();
+	}
+	
+	/**
+	 * Move the cursor to the next cell.
+	 * @return Returns the cursor.
+	 */
+	public CellCursor next(){
+		
+		Entry<Key, Value> next = this.decoratedIterator.next();
+		
+		this.key.repoint(next.getKey());
+		
+		this.value = next.getValue();
+		
+		return this;
+	}
+	
+	/* ####### Key ############################################################################# */
+	
+	/**
+	 * Get the key of the current cell (the same instance for every cell).
+	 * @return Key
+	 */
+	public SimpleKey key(){
+		
+		current();
+		
+		return this.key;
+	}
+	
+	public String rowKey(){
+		
+		return key().rowKey();
+	}
+	
+	public String family(){
+		
+		return key().family();
+	}
+	
+	public String qualifier(){
+		
+		return key().qualifier();
+	}
+	
+	public String visibility(){
+		
+		return key().visibility();
+	}
+	
+	public long timestamp(){
+		
+		return key().getTimestamp();
+	}
+	
+	public ByteSequence rowData(){
+		
+		return key().getRowData();
+	}
+	
+	public ByteSequence familyData(){
+		
+		return key().getColumnFamilyData();
+	}
+	
+	public ByteSequence qualifierData(){
+		
+		return key().getColumnQualifierData();
+	}
+	
+	public ByteSequence visibilityData(){
+		
+		return key().getColumnVisibilityData();
+	}
+	
+	/* ####### Value ########################################################################### */
+	
+	/**
+	 * Get the value of the current cell.
+	 * @return Value
+	 */
+	public Value value(){
+		
+		return current();
+	}
+	
+	public int asInt(){
+		
+		byte[] bytes = current().get();
+		
+		return ConversionUtils.decodeInt(bytes, 0, bytes.length);
+	}
+	
+	public long asLong(){
+		
+		byte[] bytes = current().get();
+		
+		return ConversionUtils.decodeLong(bytes, 0, bytes.length);
+	}
+	
+	public double asDouble(){
+		
+		byte[] bytes = current().get();
+		
+		return ConversionUtils.decodeDouble(bytes, 0, bytes.length);
+	}
+	
+	public String asString(){
+		
+		return ConversionUtils.toString(current().get());
+	}
+	
+	public <T> T as(Class<T> clazz) throws UnsupportedDataTypeException {
+		
+		return ConversionUtils.convert(current().get(), clazz);
+	}
+	
+	Value current(){
+		
+		if (this.value == null){
+			
+			throw new NoSuchElementException("Call next() before reading the current cell.");
+		}
+		
+		return this.value;
+	}
+}
@@ -0,0 +1,355 @@
+package com.berico.accumulo;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+
+import com.berico.accumulo.CellValueRetrievalOps.ValueHandler;
+
+/**
+ * Fluent Interface for looking up many cells in one pass.
+ *
+ * Each cell() call only records the cell's coordinates and the handler for
+ * its value.  Nothing is read until resolve() is called, at which point all
+ * of the cells are fetched with a single BatchScanner (in parallel across the
+ * tablet servers) and each value is dispatched to its handler.  Handlers of
+ * cells that do not exist are not called.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class CellLookupOps {
+	
+	ScanOps parent;
+	int numberOfThreads;
+	
+	/**
+	 * Pending cells, indexed by row, family and qualifier.
+	 */
+	Map<String, List<PendingCell>> pending = new HashMap<String, List<PendingCell>>();
+	
+	List<Range> ranges = new ArrayList<Range>();
+	
+	public CellLookupOps(ScanOps parent, int numberOfThreads){
+		
+		this.parent = parent;
+		this.numberOfThreads = numberOfThreads;
+	}
+	
+	/* ####### Cell Coordinates ################################################################ */
+	
+	/**
+	 * Add a cell to the lookup.
+	 * @param rowId Row
+	 * @param columnFamily Column Family
+	 * @param columnQualifier Column Qualifier
+	 * @return Fluent interface for handling the cell's value.
+	 */
+	public PendingCell cell(String rowId, String columnFamily, String columnQualifier){
+		
+		return cell(rowId, columnFamily, columnQualifier, null);
+	}
+	
+	/**
+	 * Add a cell to the lookup.
+	 * @param rowId Row
+	 * @param columnExpression Expression representing the family, qualifier and visibility
+	 * @return Fluent interface for handling the cell's value.
+	 */
+	public PendingCell cell(String rowId, String columnExpression){
+		
+		ColumnIdentifiers columnIdentifiers = new ColumnIdentifiers(columnExpression);
+		
+		return cell(rowId, columnIdentifiers.getColumnFamily(),
+			columnIdentifiers.getColumnQualifier(), columnIdentifiers.getVisibilityExpression());
+	}
+	
+	/**
+	 * Add a cell to the lookup.
+	 * @param rowId Row
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @return Fluent interface for handling the cell's value.
+	 */
+	public PendingCell cell(String rowId, CompiledColumn column){
+		
+		return cell(rowId, column.getColumnFamily(), 
+			column.getColumnQualifier(), column.getVisibilityExpression());
+	}
+	
+	/**
+	 * Add a cell to the lookup.
+	 * @param rowId Row
+	 * @param columnFamily Column Family
+	 * @param columnQualifier Column Qualifier
+	 * @param columnVisibility Visibility of the Column
+	 * @return Fluent interface for handling the cell's value.
+	 */
+	public PendingCell cell(String rowId, String columnFamily, String columnQualifier, String columnVisibility){
+		
+		PendingCell cell = new PendingCell(columnVisibility);
+		
+		String coordinates = coordinates(rowId, columnFamily, columnQualifier);
+		
+		List<PendingCell> cells = this.pending.get(coordinates);
+		
+		if (cells == null){
+			
+			cells = new ArrayList<PendingCell>();
+			
+			this.pending.put(coordinates, cells);
+		}
+		
+		cells.add(cell);
+		
+		this.ranges.add(this.parent.getExactRange(rowId, columnFamily, columnQualifier, columnVisibility, 0));
+		
+		return cell;
+	}
+	
+	/* ####### Resolution ###################################################################### */
+	
+	/**
+	 * Fetch every pending cell in one batch scan and dispatch the values to their handlers.
+	 * @return The ScanOps interface the lookup was started from.
+	 * @throws TableNotFoundException
+	 */
+	public ScanOps resolve() throws TableNotFoundException {
+		
+		if (this.ranges.isEmpty()){
+			
+			return this.parent;
+		}
+		
+		BatchScanner scanner = this.parent.createBatchScanner(this.numberOfThreads);
+		
+		try {
+			
+			scanner.setRanges(Range.mergeOverlapping(this.ranges));
+			
+			Iterator<Entry<Key, Value>> results = scanner.iterator();
+			
+			while (results.hasNext()){
+				
+				dispatch(results.next());
+			}
+		}
+		finally {
+			
+			scanner.close();
+		}
+		
+		this.pending.clear();
+		this.ranges.clear();
+		
+		return this.parent;
+	}
+	
+	/**
+	 * Hand a cell to each pending lookup it satisfies.  The first version returned
+	 * for a cell wins, mirroring ScanOps.cell().
+	 * @param entry Cell returned by the scanner.
+	 */
+	void dispatch(Entry<Key, Value> entry){
+		
+		Key key = entry.getKey();
+		
+		List<PendingCell> cells = this.pending.get(coordinates(
+			key.getRow().toString(), key.getColumnFamily().toString(), key.getColumnQualifier().toString()));
+		
+		if (cells == null){
+			
+			return;
+		}
+		
+		CellValueRetrievalOps cell = null;
+		
+		for (PendingCell pendingCell : cells){
+			
+			if (pendingCell.resolved || pendingCell.handler == null || !pendingCell.matches(key)){
+				
+				continue;
+			}
+			
+			if (cell == null){
+				
+				cell = new CellValueRetrievalOps(this.parent, entry);
+			}
+			
+			pendingCell.resolved = true;
+			
+			pendingCell.handler.handle(cell);
+		}
+	}
+	
+	static String coordinates(String rowId, String columnFamily, String columnQualifier){
+		
+		return new StringBuilder(rowId).append('\0')
+			.append(columnFamily).append('\0').append(columnQualifier).toString();
+	}
+	
+	/* ####### Value Handlers ################################################################## */
+	
+	/**
+	 * A cell waiting to be resolved, and the handler for its value.
+	 *
+	 * @author Richard Clayton (Berico Technologies)
+	 */
+	public class PendingCell {
+		
+		String columnVisibility;
+		ValueHandler<CellValueRetrievalOps> handler;
+		boolean resolved = false;
+		
+		PendingCell(String columnVisibility){
+			
+			this.columnVisibility = columnVisibility;
+		}
+		
+		boolean matches(Key key){
+			
+			return this.columnVisibility == null
+				|| this.columnVisibility.equals(key.getColumnVisibility().toString());
+		}
+		
+		public CellLookupOps handle(ValueHandler<CellValueRetrievalOps> handler){
+			
+			this.handler = handler;
+			
+			return CellLookupOps.this;
+		}
+		
+		public CellLookupOps get(final ValueHandler<Entry<SimpleKey, Value>> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.get(handler);
+				}
+			});
+		}
+		
+		public <T> CellLookupOps get(final ValueHandler<Entry<SimpleKey, T>> handler, final Class<T> clazz)
+			throws UnsupportedDataTypeException {
+			
+			// Fail now, rather than inside the scan, if the type can't be decoded.
+			ConversionUtils.lexicoderFor(clazz);
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					try {
+						
+						cell.get(handler, clazz);
+						
+					} catch (UnsupportedDataTypeException e) {
+						
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+		}
+		
+		public CellLookupOps asInt(final ValueHandler<Integer> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asInt(handler);
+				}
+			});
+		}
+		
+		public CellLookupOps asDouble(final ValueHandler<Double> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asDouble(handler);
+				}
+			});
+		}
+		
+		public CellLookupOps asLong(final ValueHandler<Long> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asLong(handler);
+				}
+			});
+		}
+		
+		public CellLookupOps asBigInteger(final ValueHandler<BigInteger> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asBigInteger(handler);
+				}
+			});
+		}
+		
+		public CellLookupOps asBytes(final ValueHandler<byte[]> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asBytes(handler);
+				}
+			});
+		}
+		
+		public CellLookupOps asString(final ValueHandler<String> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asString(handler);
+				}
+			});
+		}
+		
+		public CellLookupOps asDate(final ValueHandler<Date> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asDate(handler);
+				}
+			});
+		}
+		
+		public CellLookupOps asUUID(final ValueHandler<UUID> handler){
+			
+			return handle(new ValueHandler<CellValueRetrievalOps>(){
+				@Override
+				public void handle(CellValueRetrievalOps cell) {
+					
+					cell.asUUID(handler);
+				}
+			});
+		}
+	}
+}
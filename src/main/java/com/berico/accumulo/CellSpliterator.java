@@ -0,0 +1,224 @@
+package com.berico.accumulo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+
+import com.berico.accumulo.CellValueRetrievalOps.ValueHandler;
+
+/**
+ * Traverses the cells of a range, and can split the range along tablet
+ * boundaries (TableOperations.getSplits) so that the pieces can be scanned in
+ * parallel, each by its own Scanner talking to one tablet server.
+ *
+ * Modeled on java.util.Spliterator: trySplit() hands the first half of the
+ * remaining tablets to a new instance, tryAdvance(...) and forEachRemaining(...)
+ * traverse the cells.  The Scanner is created lazily, on the first traversal, so
+ * splitting costs nothing; close() releases it.  ScanOps.parallelForEach(...)
+ * does the splitting and fan-out.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class CellSpliterator {
+	
+	ScanOps parent;
+	
+	Range range;
+	
+	/**
+	 * Tablet split points strictly inside the range, in order.
+	 */
+	List<Text> splits;
+	
+	Scanner scanner = null;
+	
+	Iterator<Entry<Key, Value>> iterator = null;
+	
+	boolean closed = false;
+	
+	/**
+	 * Initialize the spliterator over the range, loading the table's split points.
+	 * @param parent Scan interface (supplies the table and authorizations).
+	 * @param range Range to traverse.
+	 * @throws TableNotFoundException
+	 */
+	public CellSpliterator(ScanOps parent, Range range) throws TableNotFoundException {
+		
+		this(parent, range, splitsWithin(parent.cirrus.tableOperations.getSplits(parent.tableName), range));
+	}
+	
+	CellSpliterator(ScanOps parent, Range range, List<Text> splits){
+		
+		this.parent = parent;
+		this.range = range;
+		this.splits = splits;
+	}
+	
+	/**
+	 * Keep the split points that fall inside the range.  A split point is the last row
+	 * of its tablet, so splitting there divides the range between tablets.
+	 * @param splits All split points of the table.
+	 * @param range Range to traverse.
+	 * @return Split points inside the range, in order.
+	 */
+	static List<Text> splitsWithin(Iterable<Text> splits, Range range){
+		
+		List<Text> within = new ArrayList<Text>();
+		
+		for (Text split : splits){
+			
+			Key following = new Key(split).followingKey(PartialKey.ROW);
+			
+			if (range.contains(new Key(split)) && !range.afterEndKey(following)){
+				
+				within.add(split);
+			}
+		}
+		
+		return within;
+	}
+	
+	/* ####### Splitting ####################################################################### */
+	
+	/**
+	 * Hand the first half of the remaining tablets to a new spliterator.
+	 * @return Spliterator covering the first half, or null if this one covers a single
+	 * tablet or has started traversing.
+	 */
+	public CellSpliterator trySplit(){
+		
+		if (this.iterator != null || this.closed || this.splits.isEmpty()){
+			
+			return null;
+		}
+		
+		int middle = this.splits.size() / 2;
+		
+		Key boundary = new Key(this.splits.get(middle)).followingKey(PartialKey.ROW);
+		
+		Range first = new Range(this.range.getStartKey(), this.range.isStartKeyInclusive(), boundary, false);
+		
+		Range second = new Range(boundary, true, this.range.getEndKey(), this.range.isEndKeyInclusive());
+		
+		CellSpliterator prefix = new CellSpliterator(this.parent, first,
+			new ArrayList<Text>(this.splits.subList(0, middle)));
+		
+		this.range = second;
+		
+		this.splits = new ArrayList<Text>(this.splits.subList(middle + 1, this.splits.size()));
+		
+		return prefix;
+	}
+	
+	/**
+	 * Number of tablets the remaining range covers.
+	 * @return Tablet count.
+	 */
+	public int tablets(){
+		
+		return this.splits.size() + 1;
+	}
+	
+	/**
+	 * The number of cells is not known before scanning.
+	 * @return Long.MAX_VALUE (unknown), as java.util.Spliterator reports it.
+	 */
+	public long estimateSize(){
+		
+		return Long.MAX_VALUE;
+	}
+	
+	public Range getRange() {
+		return range;
+	}
+	
+	/* ####### Traversal ####################################################################### */
+	
+	/**
+	 * Hand the next cell to the handler.
+	 * @param handler Receives the cell.
+	 * @return false if there are no more cells.
+	 * @throws TableNotFoundException
+	 */
+	public boolean tryAdvance(ValueHandler<Entry<Key, Value>> handler) throws TableNotFoundException {
+		
+		Iterator<Entry<Key, Value>> cells = cells();
+		
+		if (!cells.hasNext()){
+			
+			close();
+			
+			return false;
+		}
+		
+		handler.handle(cells.next());
+		
+		return true;
+	}
+	
+	/**
+	 * Hand every remaining cell to the handler, then release the Scanner.
+	 * @param handler Receives each cell.
+	 * @throws TableNotFoundException
+	 */
+	public void forEachRemaining(ValueHandler<Entry<Key, Value>> handler) throws TableNotFoundException {
+		
+		try {
+			
+			Iterator<Entry<Key, Value>> cells = cells();
+			
+			while (cells.hasNext()){
+				
+				handler.handle(cells.next());
+			}
+		}
+		finally {
+			
+			close();
+		}
+	}
+	
+	Iterator<Entry<Key, Value>> cells() throws TableNotFoundException {
+		
+		if (this.closed){
+			
+			return Collections.<Entry<Key, Value>>emptyList().iterator();
+		}
+		
+		if (this.iterator == null){
+			
+			this.scanner = this.parent.cirrus.connector.createScanner(
+				this.parent.tableName, this.parent.authorizations);
+			
+			this.scanner.setRange(this.range);
+			
+			this.parent.configure(this.scanner);
+			
+			this.iterator = this.scanner.iterator();
+		}
+		
+		return this.iterator;
+	}
+	
+	/**
+	 * Stop traversing and release the Scanner.  A closed spliterator has no more cells.
+	 */
+	public void close(){
+		
+		this.closed = true;
+		
+		this.iterator = null;
+		
+		this.scanner = null;
+	}
+}
@@ -18,30 +18,147 @@ public class CellValueRetrievalOps {
 		public void handle(T value);
 	}
 	
+	/**
+	 * Receives an int value without boxing it (see forInt(...)).
+	 */
+	public interface IntValueHandler {
+		
+		public void handle(int value);
+	}
+	
+	/**
+	 * Receives a long value without boxing it (see forLong(...)).
+	 */
+	public interface LongValueHandler {
+		
+		public void handle(long value);
+	}
+	
+	/**
+	 * Receives a double value without boxing it (see forDouble(...)).
+	 */
+	public interface DoubleValueHandler {
+		
+		public void handle(double value);
+	}
+	
 	Entry<Key, Value> cell;
 	ScanOps parent;
 	
+	/**
+	 * The cell's key, decorated on first use.
+	 */
+	SimpleKey key = null;
+	
 	public CellValueRetrievalOps(ScanOps parent, Entry<Key, Value> cell){
 		
 		this.cell = cell;
 		this.parent = parent;
 	}
 	
+	/* ####### Missing Cells ################################################################### */
+	
+	/**
+	 * Did the lookup find the cell?  The other accessors dereference the cell, so check
+	 * this (or use the ...Or(default) and ifPresent(...) variants) when it may be missing.
+	 * @return true if the cell exists.
+	 */
+	public boolean exists(){
+		
+		return this.cell != null;
+	}
+	
+	/**
+	 * Hand the cell to the handler if it exists.
+	 * @param handler Receives the cell.
+	 * @return Returns the Scan fluent interface.
+	 */
+	public ScanOps ifPresent(ValueHandler<Entry<SimpleKey, Value>> handler){
+		
+		if (exists()){
+			
+			handler.handle(get());
+		}
+		
+		return this.parent;
+	}
+	
+	/**
+	 * Hand the cell's value to the handler if it exists.
+	 * @param handler Receives the value.
+	 * @param clazz Type to decode the value as.
+	 * @return Returns the Scan fluent interface.
+	 * @throws UnsupportedDataTypeException
+	 */
+	public <T> ScanOps ifPresent(ValueHandler<T> handler, Class<T> clazz) throws UnsupportedDataTypeException{
+		
+		if (exists()){
+			
+			handler.handle(ConversionUtils.convert(cell.getValue().get(), clazz));
+		}
+		
+		return this.parent;
+	}
+	
+	public int asIntOr(int defaultValue){
+		
+		return (exists())? asInt() : defaultValue;
+	}
+	
+	public long asLongOr(long defaultValue){
+		
+		return (exists())? asLong() : defaultValue;
+	}
+	
+	public double asDoubleOr(double defaultValue){
+		
+		return (exists())? asDouble() : defaultValue;
+	}
+	
+	public String asStringOr(String defaultValue){
+		
+		return (exists())? asString() : defaultValue;
+	}
+	
+	public byte[] asBytesOr(byte[] defaultValue){
+		
+		return (exists())? asBytes() : defaultValue;
+	}
+	
+	/**
+	 * Decode the cell's value, or return the default if the cell is missing.
+	 * @param clazz Type to decode the value as.
+	 * @param defaultValue Value returned for a missing cell (may be null).
+	 * @return Decoded value or the default.
+	 * @throws UnsupportedDataTypeException
+	 */
+	public <T> T asOr(Class<T> clazz, T defaultValue) throws UnsupportedDataTypeException{
+		
+		return (exists())? ConversionUtils.convert(cell.getValue().get(), clazz) : defaultValue;
+	}
+	
+	/* ####### Values ########################################################################## */
+	
 	public Entry<SimpleKey, Value> get(){
 	
-		return new SimpleEntry<SimpleKey, Value>(new SimpleKey(cell.getKey()), cell.getValue());
+		return new SimpleEntry<SimpleKey, Value>(key(), cell.getValue());
 	}
 	
 	public <T> Entry<SimpleKey, T> get(Class<T> clazz) throws UnsupportedDataTypeException{
 		
 		T decodedValue = ConversionUtils.convert(cell.getValue().get(), clazz);
 		
-		return new SimpleEntry<SimpleKey, T>(new SimpleKey(cell.getKey()), decodedValue);
+		return new SimpleEntry<SimpleKey, T>(key(), decodedValue);
 	}
 	
 	public SimpleKey key(){
 		
-		return new SimpleKey(cell.getKey());
+		if (this.key == null){
+			
+			this.key = new SimpleKey(cell.getKey());
+		}
+		
+		return this.key;
 	}
 	
 	public ScanOps get(ValueHandler<Entry<SimpleKey, Value>> handler){
@@ -70,6 +187,13 @@ public class CellValueRetrievalOps {
 		return this.parent;
 	}
 	
+	public ScanOps forInt(IntValueHandler handler){
+		
+		handler.handle(asInt());
+		
+		return this.parent;
+	}
+	
 	public double asDouble(){
 		
 		return ConversionUtils.toDouble(cell.getValue().get());
@@ -82,6 +206,13 @@ public class CellValueRetrievalOps {
 		return this.parent;
 	}
 	
+	public ScanOps forDouble(DoubleValueHandler handler){
+		
+		handler.handle(asDouble());
+		
+		return this.parent;
+	}
+	
 	public long asLong(){
 			
 		return ConversionUtils.toLong(cell.getValue().get());
@@ -94,6 +225,13 @@ public class CellValueRetrievalOps {
 		return this.parent;
 	}
 	
+	public ScanOps forLong(LongValueHandler handler){
+		
+		handler.handle(asLong());
+		
+		return this.parent;
+	}
+	
 	public BigInteger asBigInteger(){
 		
 		return ConversionUtils.toBigInteger(cell.getValue().get());
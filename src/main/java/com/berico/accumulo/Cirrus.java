@@ -1,14 +1,23 @@
 package com.berico.accumulo;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.client.ZooKeeperInstance;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.Mutation;
 
 /**
  * Cirrus - A Fluent API for Apache Accumulo.
@@ -29,6 +38,50 @@ public class Cirrus {
 	
 	Connector connector = null;
 	
+	TableOperations tableOperations = null;
+	
+	/**
+	 * Table existence, IDs and properties; shared with every Cirrus on the same connection.
+	 */
+	TableMetadataCache tableCache = null;
+	
+	/**
+	 * BatchWriters leased by MutationOps; shared with every Cirrus on the same connection.
+	 */
+	WriterPool writerPool = null;
+	
+	/**
+	 * Leases on the pool's writers taken by chains started from this Cirrus and not yet closed.
+	 */
+	final Set<BatchWriter> leases = Collections.synchronizedSet(new HashSet<BatchWriter>());
+	
+	/**
+	 * MutationOps chains started from this Cirrus and not yet done, whose coalesced rows
+	 * shutdown() drains before returning their leases.
+	 */
+	final Set<MutationOps> chains = Collections.synchronizedSet(new HashSet<MutationOps>());
+	
+	/**
+	 * Cells read by ScanOps.cell(...); shared with every Cirrus on the same connection.
+	 */
+	CellCache cellCache = null;
+	
+	/**
+	 * Rows read by ScanOps.row(...), off-heap; shared with every Cirrus on the same connection.
+	 */
+	RowCache rowCache = null;
+	
+	/**
+	 * Bloom filters of row ids, by table and authorizations (see TableOps.rowFilter(...));
+	 * shared with every Cirrus on the same connection.
+	 */
+	RowFilters rowFilters = null;
+	
+	/**
+	 * Writer settings for chains started from this Cirrus (null uses WriterConfig.defaults()).
+	 */
+	WriterConfig writerConfig = null;
+	
 	/**
 	 * Instantiate the Accumulo Fluent API.  Uses the default ZooKeeper instances
 	 * set on the DEFAULT_ZOOKEEPERS field of this class.  
@@ -62,7 +115,9 @@ public class Cirrus {
 	}
 	
 	/**
-	 * Create a connection to the Accumulo instance.
+	 * Create a connection to the Accumulo instance.  Connections are shared process-wide
+	 * (see ConnectionRegistry), so only the first Cirrus for an instance, set of ZooKeepers
+	 * and user pays for ZooKeeper session setup and authentication.
 	 * @param instanceName Name of the Accumulo instance.
 	 * @param username User that will interact with Accumulo.
 	 * @param password Password of the user that will interact with Accumulo.
@@ -73,9 +128,24 @@ public class Cirrus {
 	void connect(String instanceName, String username, String password, String[] zooKeepers)  
 		throws AccumuloException, AccumuloSecurityException {
 		
-		this.zookeeper = new ZooKeeperInstance(instanceName, flatten(zooKeepers, ","));
+		SharedConnection connection = 
+			ConnectionRegistry.connect(instanceName, flatten(zooKeepers, ","), username, password);
+		
+		this.zookeeper = connection.instance;
+		
+		this.connector = connection.connector;
 		
-		this.connector = this.zookeeper.getConnector(username, password);
+		this.tableOperations = connection.tableOperations;
+		
+		this.tableCache = connection.tableCache;
+		
+		this.writerPool = connection.writerPool;
+		
+		this.cellCache = connection.cellCache;
+		
+		this.rowCache = connection.rowCache;
+		
+		this.rowFilters = connection.rowFilters;
 	}
 	
 	
@@ -114,7 +184,110 @@ public class Cirrus {
 	 */
 	public Collection<String> tables() {
 		
-		return this.connector.tableOperations().list();
+		return this.tableOperations.list();
+	}
+	
+	/**
+	 * Get the cache of table metadata used by the fluent interfaces.
+	 * @return Table metadata cache.
+	 */
+	public TableMetadataCache tableCache() {
+		
+		return this.tableCache;
+	}
+	
+	/**
+	 * Cache the cells read by ScanOps.cell(...), for every Cirrus on this connection.
+	 * Writes made through Cirrus invalidate the cells they touch.
+	 * @param maxBytes Maximum estimated bytes of cached cells; 0 disables the cache.
+	 * @param ttl Milliseconds a cell is trusted before it is scanned again.
+	 * @return Returns the fluent interface.
+	 */
+	public Cirrus cellCache(long maxBytes, long ttl){
+		
+		this.cellCache.configure(maxBytes, ttl);
+		
+		return this;
+	}
+	
+	/**
+	 * Get the cache of cells read by ScanOps.cell(...) (and its hit/miss/eviction counts).
+	 * @return Cell cache.
+	 */
+	public CellCache cellCache() {
+		
+		return this.cellCache;
+	}
+	
+	/**
+	 * Cache the rows read by ScanOps.row(...) off-heap, for every Cirrus on this connection.
+	 * Writes made through Cirrus invalidate the rows they touch.
+	 * @param capacity Bytes of off-heap memory, allocated now; 0 disables the cache.
+	 * @param blockSize Bytes per cached row; larger rows are not cached.
+	 * @param ttl Milliseconds a row is trusted before it is scanned again.
+	 * @return Returns the fluent interface.
+	 */
+	public Cirrus rowCache(long capacity, int blockSize, long ttl){
+		
+		this.rowCache.configure(capacity, blockSize, ttl);
+		
+		return this;
+	}
+	
+	/**
+	 * Get the off-heap cache of rows read by ScanOps.row(...) (and its hit/miss/eviction counts).
+	 * @return Row cache.
+	 */
+	public RowCache rowCache() {
+		
+		return this.rowCache;
+	}
+	
+	/**
+	 * Add the row a mutation writes to the table's row filters.  Call this before the
+	 * mutation is handed to a writer, so a filter never rules out a row that is in the table.
+	 * @param tableName Name of the table written to.
+	 * @param mutation The mutation.
+	 */
+	void writing(String tableName, Mutation mutation){
+		
+		this.rowFilters.add(tableName, mutation.getRow());
+	}
+	
+	/**
+	 * Invalidate what the client-side caches hold of the cells a mutation writes.  Call this
+	 * once the mutation has been flushed, so a read in between cannot cache the old cells again.
+	 * @param tableName Name of the table written to.
+	 * @param mutation The mutation.
+	 */
+	void written(String tableName, Mutation mutation){
+		
+		this.cellCache.invalidate(tableName, mutation);
+		
+		if (this.rowCache.isEnabled()){
+			
+			this.rowCache.invalidate(tableName, new String(mutation.getRow(), ConversionUtils.UTF8));
+		}
+	}
+	
+	/**
+	 * Are any client-side caches holding cells that writes must invalidate?
+	 * @return true if the cell or row cache is enabled.
+	 */
+	boolean isCaching(){
+		
+		return this.cellCache.isEnabled() || this.rowCache.isEnabled();
+	}
+	
+	/**
+	 * Invalidate everything the client-side caches hold of a table.
+	 * @param tableName Name of the table.
+	 */
+	void tableChanged(String tableName){
+		
+		this.cellCache.invalidate(tableName);
+		
+		this.rowCache.invalidate(tableName);
 	}
 	
 	/* ############## Mutations ########################################################################## */
@@ -124,6 +297,131 @@ public class Cirrus {
 		return new MutationOps(table, this);
 	}
 	
+	/**
+	 * Mutate the table with a writer configured for this chain only.
+	 * @param table Name of the table.
+	 * @param writerConfig Writer settings (e.g. WriterConfig.LOW_LATENCY).
+	 * @return The Mutation Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException
+	 */
+	public MutationOps mutate(String table, WriterConfig writerConfig) throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException{
+		
+		return new MutationOps(table, this, writerConfig);
+	}
+	
+	/**
+	 * Mutate the table without blocking; writes return Futures that complete once flushed.
+	 * @param table Name of the table.
+	 * @return The asynchronous Mutation Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException
+	 */
+	public AsyncMutationOps mutateAsync(String table) throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException{
+		
+		return new AsyncMutationOps(table, this);
+	}
+	
+	/**
+	 * Set the writer configuration used by chains started from this Cirrus.
+	 * @param writerConfig Writer settings (e.g. WriterConfig.BULK_THROUGHPUT).
+	 * @return Returns the fluent interface.
+	 */
+	public Cirrus writerConfig(WriterConfig writerConfig){
+		
+		this.writerConfig = writerConfig;
+		
+		return this;
+	}
+	
+	/**
+	 * Get the writer configuration used by chains started from this Cirrus.
+	 * @return Writer settings.
+	 */
+	public WriterConfig writerConfig(){
+		
+		return (this.writerConfig == null)? WriterConfig.defaults() : this.writerConfig;
+	}
+	
+	/**
+	 * Lease the shared writer for a table; the lease is returned when the chain is done or
+	 * this Cirrus is shut down.
+	 * @param tableName Name of the table.
+	 * @param config Writer configuration.
+	 * @return A lease on the writer.
+	 * @throws TableNotFoundException
+	 */
+	BatchWriter lease(String tableName, WriterConfig config) throws TableNotFoundException {
+		
+		return this.writerPool.lease(tableName, config, this.leases);
+	}
+	
+	/**
+	 * A MutationOps chain was started; shutdown() finishes it if it is never done.
+	 * @param chain The chain.
+	 */
+	void opened(MutationOps chain){
+		
+		this.chains.add(chain);
+	}
+	
+	/**
+	 * A MutationOps chain is done.
+	 * @param chain The chain.
+	 */
+	void closed(MutationOps chain){
+		
+		this.chains.remove(chain);
+	}
+	
+	/**
+	 * Finish the MutationOps chains started from this Cirrus that are not done (writing the
+	 * rows they are still coalescing), flush and return the writer leases they and other
+	 * chains still hold, and close the shared writers no other Cirrus is using.  Call this
+	 * once this Cirrus is done writing, when no chain is still putting; the writers of the
+	 * whole connection are closed by SharedConnection.close() (ConnectionRegistry.shutdown())
+	 * or when the JVM exits.
+	 */
+	public void shutdown(){
+		
+		List<MutationOps> unfinished;
+		
+		synchronized (this.chains) {
+			
+			unfinished = new ArrayList<MutationOps>(this.chains);
+		}
+		
+		for (MutationOps chain : unfinished){
+			
+			chain.close();
+		}
+		
+		List<BatchWriter> open;
+		
+		synchronized (this.leases) {
+			
+			open = new ArrayList<BatchWriter>(this.leases);
+		}
+		
+		for (BatchWriter lease : open){
+			
+			try {
+				
+				lease.close();
+				
+			} catch (MutationsRejectedException e) {
+				
+				e.printStackTrace();
+			}
+		}
+		
+		this.writerPool.closeIdle();
+	}
+	
 	/* ############## Helpers ############################################################################ */
 	
 	/**
@@ -1,5 +1,11 @@
 package com.berico.accumulo;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+
 /**
  * Represents the pieces of information required in specifying
  * a cell's location in Accumulo (minus the Row ID).
@@ -22,25 +28,35 @@ public class ColumnIdentifiers {
 	
 	public static final String COLUMN_IDENT_SEPARATOR = ":";
 	
+	static final char SEPARATOR = ':';
+	
+	/**
+	 * Maximum number of compiled expressions that are interned.
+	 */
+	public static int MAX_INTERNED_EXPRESSIONS = 4096;
+	
+	static final ConcurrentMap<String, CompiledColumn> compiled = new ConcurrentHashMap<String, CompiledColumn>();
+	
 	public String columnFamily = null;
 	public String columnQualifier = null;
 	public String visibilityExpression = null;
 	
+	/**
+	 * Encoded forms of the identifiers, built on first use.
+	 */
+	Encoded encoded = null;
+	
 	/**
 	 * Parse and set column identifiers.
 	 * @param identifierExpression Column Identifier expression.
 	 */
 	public ColumnIdentifiers(String identifierExpression){
 		
-		String[] parts = identifierExpression.split(COLUMN_IDENT_SEPARATOR);
+		String[] parts = parse(identifierExpression);
 		
 		this.columnFamily = parts[0];
 		this.columnQualifier = parts[1];
-		
-		if (parts.length > 2){
-			
-			this.visibilityExpression = stripBrackets(parts[2]);
-		}
+		this.visibilityExpression = parts[2];
 	}
 	
 	/**
@@ -100,6 +116,187 @@ public class ColumnIdentifiers {
 		return visibilityExpression;
 	}
 
+	/* ####### Compiled Expressions ########################################################## */
+	
+	/**
+	 * Parse the expression once, returning an immutable handle that can be passed to
+	 * put(...), column(...), delete(...) and cell(...) instead of the expression.  Handles
+	 * are interned, so compiling the same expression again returns the same instance.
+	 * @param expression Column Identifier expression.
+	 * @return Compiled column.
+	 */
+	public static CompiledColumn compile(String expression){
+		
+		CompiledColumn column = compiled.get(expression);
+		
+		if (column != null){
+			
+			return column;
+		}
+		
+		column = new CompiledColumn(expression);
+		
+		// Past the cap, expressions are still compiled, just not interned.
+		if (compiled.size() >= MAX_INTERNED_EXPRESSIONS){
+			
+			return column;
+		}
+		
+		CompiledColumn existing = compiled.putIfAbsent(expression, column);
+		
+		return (existing == null)? column : existing;
+	}
+	
+	/**
+	 * Split the expression into family, qualifier and visibility (brackets stripped) in
+	 * one pass, with the same results as expression.split(":"): segments past the third are
+	 * ignored, and the visibility is absent (null) if nothing but separators follows the
+	 * qualifier.
+	 * @param expression Column Identifier expression.
+	 * @return Family, qualifier and visibility (or null).
+	 * @throws IllegalArgumentException If the expression has no qualifier.
+	 */
+	static String[] parse(String expression){
+		
+		int familyEnd = expression.indexOf(SEPARATOR);
+		
+		if (familyEnd < 0 || !hasSegmentAfter(expression, familyEnd)){
+			
+			throw new IllegalArgumentException(
+				"Column expression requires a family and a qualifier (family:qualifier[:visibility]): " + expression);
+		}
+		
+		String family = expression.substring(0, familyEnd);
+		
+		int qualifierEnd = expression.indexOf(SEPARATOR, familyEnd + 1);
+		
+		if (qualifierEnd < 0){
+			
+			return new String[]{ family, expression.substring(familyEnd + 1), null };
+		}
+		
+		String qualifier = expression.substring(familyEnd + 1, qualifierEnd);
+		
+		if (!hasSegmentAfter(expression, qualifierEnd)){
+			
+			return new String[]{ family, qualifier, null };
+		}
+		
+		int visibilityEnd = expression.indexOf(SEPARATOR, qualifierEnd + 1);
+		
+		String visibility = expression.substring(qualifierEnd + 1, 
+			(visibilityEnd < 0)? expression.length() : visibilityEnd);
+		
+		return new String[]{ family, qualifier, stripBrackets(visibility) };
+	}
+	
+	/**
+	 * Is there anything other than separators after the index?  (split(...) drops
+	 * trailing empty segments.)
+	 * @param expression Column Identifier expression.
+	 * @param index Index of a separator.
+	 * @return True if a non-empty segment follows.
+	 */
+	static boolean hasSegmentAfter(String expression, int index){
+		
+		for (int i = index + 1; i < expression.length(); i++){
+			
+			if (expression.charAt(i) != SEPARATOR){
+				
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/* ####### Encoded Forms ################################################################# */
+	
+	/**
+	 * Get the Column Family as Text.  The instance is cached and shared; it must not be modified.
+	 * @return Column Family
+	 */
+	Text columnFamilyText(){
+		
+		return encoded().columnFamily;
+	}
+	
+	/**
+	 * Get the Column Qualifier as Text.  The instance is cached and shared; it must not be modified.
+	 * @return Column Qualifier
+	 */
+	Text columnQualifierText(){
+		
+		return encoded().columnQualifier;
+	}
+	
+	/**
+	 * Get the parsed visibility expression.
+	 * @return Column Visibility, or null if there is no visibility expression.
+	 */
+	ColumnVisibility columnVisibility(){
+		
+		return encoded().columnVisibility;
+	}
+	
+	/**
+	 * Get the encoded identifiers, encoding them again if the fields were changed since.
+	 * @return Encoded identifiers.
+	 */
+	Encoded encoded(){
+		
+		Encoded current = this.encoded;
+		
+		if (current == null || !current.encodes(this)){
+			
+			current = new Encoded(this);
+			
+			this.encoded = current;
+		}
+		
+		return current;
+	}
+	
+	/**
+	 * The identifiers encoded the way a Mutation wants them.  Immutable once built, so an
+	 * instance can be handed between threads along with the ColumnIdentifiers.
+	 */
+	static final class Encoded {
+		
+		final String columnFamilySource;
+		final String columnQualifierSource;
+		final String visibilitySource;
+		
+		final Text columnFamily;
+		final Text columnQualifier;
+		final ColumnVisibility columnVisibility;
+		
+		Encoded(ColumnIdentifiers identifiers){
+			
+			this.columnFamilySource = identifiers.columnFamily;
+			this.columnQualifierSource = identifiers.columnQualifier;
+			this.visibilitySource = identifiers.visibilityExpression;
+			
+			this.columnFamily = new Text(this.columnFamilySource);
+			this.columnQualifier = new Text(this.columnQualifierSource);
+			this.columnVisibility = (this.visibilitySource == null)? 
+				null : VisibilityCache.shared().get(this.visibilitySource);
+		}
+		
+		/**
+		 * Were these encoded from the identifiers' current values?  Compared by identity;
+		 * reassigning an equal String costs one re-encode.
+		 * @param identifiers Column Identifiers.
+		 * @return True if the encoding is current.
+		 */
+		boolean encodes(ColumnIdentifiers identifiers){
+			
+			return this.columnFamilySource == identifiers.columnFamily
+				&& this.columnQualifierSource == identifiers.columnQualifier
+				&& this.visibilitySource == identifiers.visibilityExpression;
+		}
+	}
+	
 	/**
 	 * Strip leading and trailing brackets "[]" from the string.
 	 * @param expression Expression potentially containing brackets.
@@ -0,0 +1,268 @@
+package com.berico.accumulo;
+
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * Every cell of one row, held in parallel arrays in the order Accumulo
+ * returns them (family, qualifier, visibility, newest timestamp first).
+ *
+ * Looking up a column is a binary search over the encoded family and
+ * qualifier, so a row with hundreds of columns costs O(log n) per lookup
+ * and a few arrays in memory, rather than nested maps of Strings.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class CompactRow {
+	
+	final String rowKey;
+	
+	final byte[][] families;
+	final byte[][] qualifiers;
+	final byte[][] visibilities;
+	final long[] timestamps;
+	final Value[] values;
+	
+	CompactRow(String rowKey, byte[][] families, byte[][] qualifiers, byte[][] visibilities, long[] timestamps, Value[] values){
+		
+		this.rowKey = rowKey;
+		this.families = families;
+		this.qualifiers = qualifiers;
+		this.visibilities = visibilities;
+		this.timestamps = timestamps;
+		this.values = values;
+	}
+	
+	/* ####### Lookup ########################################################################## */
+	
+	/**
+	 * Find the newest cell of the column.
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 * @return Index of the cell, or -1 if the row does not have the column.
+	 */
+	public int indexOf(String family, String qualifier){
+		
+		return indexOf(family.getBytes(ConversionUtils.UTF8), qualifier.getBytes(ConversionUtils.UTF8));
+	}
+	
+	/**
+	 * Find the newest cell of the column.
+	 * @param column Compiled column expression.
+	 * @return Index of the cell, or -1 if the row does not have the column.
+	 */
+	public int indexOf(CompiledColumn column){
+		
+		Text family = column.identifiers.columnFamilyText();
+		Text qualifier = column.identifiers.columnQualifierText();
+		
+		return indexOf(family.getBytes(), 0, family.getLength(), qualifier.getBytes(), 0, qualifier.getLength());
+	}
+	
+	int indexOf(byte[] family, byte[] qualifier){
+		
+		return indexOf(family, 0, family.length, qualifier, 0, qualifier.length);
+	}
+	
+	int indexOf(byte[] family, int familyOffset, int familyLength, byte[] qualifier, int qualifierOffset, int qualifierLength){
+		
+		int low = 0;
+		int high = this.values.length - 1;
+		int found = -1;
+		
+		while (low <= high){
+			
+			int middle = (low + high) >>> 1;
+			
+			int comparison = WritableComparator.compareBytes(
+				this.families[middle], 0, this.families[middle].length, family, familyOffset, familyLength);
+			
+			if (comparison == 0){
+				
+				comparison = WritableComparator.compareBytes(
+					this.qualifiers[middle], 0, this.qualifiers[middle].length, qualifier, qualifierOffset, qualifierLength);
+			}
+			
+			if (comparison < 0){
+				
+				low = middle + 1;
+			}
+			else {
+				
+				// Keep searching left for the first (newest) cell of the column.
+				if (comparison == 0){
+					
+					found = middle;
+				}
+				
+				high = middle - 1;
+			}
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Does the row have the column?
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 * @return true if it does.
+	 */
+	public boolean contains(String family, String qualifier){
+		
+		return indexOf(family, qualifier) >= 0;
+	}
+	
+	/**
+	 * Get the value of the newest cell of the column.
+	 * @param family Column Family
+	 * @param qualifier Column Qualifier
+	 * @return Value, or null if the row does not have the column.
+	 */
+	public Value get(String family, String qualifier){
+		
+		int index = indexOf(family, qualifier);
+		
+		return (index < 0)? null : this.values[index];
+	}
+	
+	/**
+	 * Get the value of the newest cell of the column.
+	 * @param column Compiled column expression.
+	 * @return Value, or null if the row does not have the column.
+	 */
+	public Value get(CompiledColumn column){
+		
+		int index = indexOf(column);
+		
+		return (index < 0)? null : this.values[index];
+	}
+	
+	/* ####### Cells ########################################################################### */
+	
+	public String rowKey(){
+		
+		return this.rowKey;
+	}
+	
+	/**
+	 * Number of cells in the row.
+	 * @return Cell count.
+	 */
+	public int size(){
+		
+		return this.values.length;
+	}
+	
+	public String family(int index){
+		
+		return new String(this.families[index], ConversionUtils.UTF8);
+	}
+	
+	public String qualifier(int index){
+		
+		return new String(this.qualifiers[index], ConversionUtils.UTF8);
+	}
+	
+	public String visibility(int index){
+		
+		return new String(this.visibilities[index], ConversionUtils.UTF8);
+	}
+	
+	public long timestamp(int index){
+		
+		return this.timestamps[index];
+	}
+	
+	public Value value(int index){
+		
+		return this.values[index];
+	}
+	
+	@Override
+	public String toString() {
+		
+		StringBuilder builder = new StringBuilder(this.rowKey).append(" {");
+		
+		for (int i = 0; i < this.values.length; i++){
+			
+			builder.append((i == 0)? " " : ", ").append(family(i)).append(':').append(qualifier(i));
+		}
+		
+		return builder.append(" }").toString();
+	}
+	
+	/* ####### Assembly ######################################################################## */
+	
+	/**
+	 * Collects the cells of one row, in scan order.
+	 */
+	static class Builder {
+		
+		String rowKey = null;
+		
+		int size = 0;
+		
+		byte[][] families = new byte[16][];
+		byte[][] qualifiers = new byte[16][];
+		byte[][] visibilities = new byte[16][];
+		long[] timestamps = new long[16];
+		Value[] values = new Value[16];
+		
+		/**
+		 * Add the next cell of the row.
+		 * @param key Key of the cell.
+		 * @param value Value of the cell.
+		 */
+		void add(Key key, Value value){
+			
+			if (this.rowKey == null){
+				
+				this.rowKey = SimpleKey.decode(key.getRowData());
+			}
+			
+			if (this.size == this.values.length){
+				
+				int capacity = this.size * 2;
+				
+				this.families = Arrays.copyOf(this.families, capacity);
+				this.qualifiers = Arrays.copyOf(this.qualifiers, capacity);
+				this.visibilities = Arrays.copyOf(this.visibilities, capacity);
+				this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+				this.values = Arrays.copyOf(this.values, capacity);
+			}
+			
+			this.families[this.size] = bytes(key.getColumnFamilyData());
+			this.qualifiers[this.size] = bytes(key.getColumnQualifierData());
+			this.visibilities[this.size] = bytes(key.getColumnVisibilityData());
+			this.timestamps[this.size] = key.getTimestamp();
+			this.values[this.size] = value;
+			
+			this.size++;
+		}
+		
+		static byte[] bytes(ByteSequence data){
+			
+			return Arrays.copyOfRange(data.getBackingArray(), data.offset(), data.offset() + data.length());
+		}
+		
+		/**
+		 * Build the row, trimmed to the cells added.
+		 * @return The row.
+		 */
+		CompactRow build(){
+			
+			return new CompactRow(this.rowKey,
+				Arrays.copyOf(this.families, this.size),
+				Arrays.copyOf(this.qualifiers, this.size),
+				Arrays.copyOf(this.visibilities, this.size),
+				Arrays.copyOf(this.timestamps, this.size),
+				Arrays.copyOf(this.values, this.size));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.berico.accumulo;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+
+/**
+ * Groups consecutive scanned cells by row, yielding each row as a CompactRow
+ * (see ScanOps.rows(...)).
+ * 
+ * If the scan ran the WholeRowIterator on the tablet servers, each entry
+ * already holds a whole row, which is decoded rather than regrouped.
+ * 
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class CompactRowIterator implements Iterator<CompactRow> {
+	
+	Iterator<Entry<Key, Value>> decoratedIterator;
+	
+	/**
+	 * Are the entries rows encoded by the WholeRowIterator?
+	 */
+	boolean encodedRows;
+	
+	/**
+	 * First cell of the next row, read while finding the end of the previous one.
+	 */
+	Entry<Key, Value> pending = null;
+	
+	public CompactRowIterator(Iterator<Entry<Key, Value>> iterator, boolean encodedRows){
+		
+		this.decoratedIterator = iterator;
+		this.encodedRows = encodedRows;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		
+		return this.pending != null || this.decoratedIterator.hasNext();
+	}
+	
+	@Override
+	public CompactRow next() {
+		
+		if (!hasNext()){
+			
+			throw new NoSuchElementException();
+		}
+		
+		return (this.encodedRows)? decodeRow() : groupRow();
+	}
+	
+	CompactRow groupRow(){
+		
+		Entry<Key, Value> first = (this.pending != null)? this.pending : this.decoratedIterator.next();
+		
+		this.pending = null;
+		
+		CompactRow.Builder builder = new CompactRow.Builder();
+		
+		builder.add(first.getKey(), first.getValue());
+		
+		while (this.decoratedIterator.hasNext()){
+			
+			Entry<Key, Value> next = this.decoratedIterator.next();
+			
+			if (!next.getKey().equals(first.getKey(), PartialKey.ROW)){
+				
+				this.pending = next;
+				
+				break;
+			}
+			
+			builder.add(next.getKey(), next.getValue());
+		}
+		
+		return builder.build();
+	}
+	
+	CompactRow decodeRow(){
+		
+		Entry<Key, Value> encoded = this.decoratedIterator.next();
+		
+		CompactRow.Builder builder = new CompactRow.Builder();
+		
+		try {
+			
+			for (Entry<Key, Value> cell : WholeRowIterator.decodeRow(encoded.getKey(), encoded.getValue()).entrySet()){
+				
+				builder.add(cell.getKey(), cell.getValue());
+			}
+			
+		} catch (IOException e) {
+			
+			throw new IllegalStateException("Could not decode the row " + encoded.getKey().getRow(), e);
+		}
+		
+		return builder.build();
+	}
+	
+	@Override
+	public void remove() {
+		
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,118 @@
+package com.berico.accumulo;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * A column expression parsed once (see ColumnIdentifiers.compile(...)).
+ *
+ * Holds the family, qualifier and visibility as Strings, along with their
+ * encoded forms (Text and parsed ColumnVisibility), so using the handle in a
+ * put(...), column(...), delete(...) or cell(...) call costs no parsing or
+ * encoding.  Instances are immutable and can be shared between threads.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public final class CompiledColumn {
+	
+	final String expression;
+	
+	/**
+	 * Parsed identifiers, encoded up front; never exposed, so they are never modified.
+	 */
+	final ColumnIdentifiers identifiers;
+	
+	CompiledColumn(String expression){
+		
+		String[] parts = ColumnIdentifiers.parse(expression);
+		
+		this.expression = expression;
+		
+		this.identifiers = new ColumnIdentifiers(parts[0], parts[1], parts[2]);
+		
+		this.identifiers.encoded();
+	}
+	
+	/**
+	 * Get the expression the column was compiled from.
+	 * @return Column expression.
+	 */
+	public String getExpression() {
+		return expression;
+	}
+	
+	/**
+	 * Get the name of the Column Family
+	 * @return Column Family name
+	 */
+	public String getColumnFamily() {
+		return identifiers.columnFamily;
+	}
+	
+	/**
+	 * Get the name of the Column
+	 * @return Column name
+	 */
+	public String getColumnQualifier() {
+		return identifiers.columnQualifier;
+	}
+	
+	/**
+	 * Get the visibility field expression
+	 * @return Visibility expression
+	 */
+	public String getVisibilityExpression() {
+		return identifiers.visibilityExpression;
+	}
+	
+	/**
+	 * Does the column have a visibility expression.
+	 * @return true if it does.
+	 */
+	public boolean hasVisibilityExpression(){
+		
+		return identifiers.hasVisibilityExpression();
+	}
+	
+	/**
+	 * Get a copy of the encoded Column Family.
+	 * @return Column Family bytes.
+	 */
+	public byte[] getColumnFamilyBytes(){
+		
+		return copy(identifiers.columnFamilyText());
+	}
+	
+	/**
+	 * Get a copy of the encoded Column Qualifier.
+	 * @return Column Qualifier bytes.
+	 */
+	public byte[] getColumnQualifierBytes(){
+		
+		return copy(identifiers.columnQualifierText());
+	}
+	
+	static byte[] copy(Text text){
+		
+		return Arrays.copyOf(text.getBytes(), text.getLength());
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		
+		return (o instanceof CompiledColumn) && this.expression.equals(((CompiledColumn) o).expression);
+	}
+	
+	@Override
+	public int hashCode() {
+		
+		return this.expression.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		
+		return this.expression;
+	}
+}
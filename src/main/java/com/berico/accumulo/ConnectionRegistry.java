@@ -0,0 +1,173 @@
+package com.berico.accumulo;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.ZooKeeperInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide registry of Accumulo connections, so that constructing a Cirrus
+ * only pays for ZooKeeper session setup and authentication the first time a
+ * given instance, set of ZooKeepers and user is seen.
+ *
+ * The key includes a digest of the password: a Cirrus presenting a different
+ * password is authenticated again and gets a connection of its own, which
+ * sits alongside the first one (and is closed by shutdown()) rather than
+ * replacing it.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class ConnectionRegistry {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ConnectionRegistry.class);
+	
+	/**
+	 * Connections keyed by instance, ZooKeepers, user and password digest.
+	 */
+	static ConcurrentMap<String, SharedConnection> connections = new ConcurrentHashMap<String, SharedConnection>();
+	
+	/**
+	 * ZooKeeper instances keyed by instance name and ZooKeepers.
+	 */
+	static ConcurrentMap<String, ZooKeeperInstance> instances = new ConcurrentHashMap<String, ZooKeeperInstance>();
+	
+	/**
+	 * Get a connection to the Accumulo instance, creating it if this is the first request for it.
+	 * @param instanceName Name of the Accumulo instance.
+	 * @param zooKeepers Comma-separated ZooKeeper servers.
+	 * @param username User that will interact with Accumulo.
+	 * @param password Password of the user that will interact with Accumulo.
+	 * @return A shared, authenticated connection.
+	 * @throws AccumuloException Thrown if Accumulo cannot connect.
+	 * @throws AccumuloSecurityException Thrown if the user does not have permission to connect.
+	 */
+	public static SharedConnection connect(String instanceName, String zooKeepers, String username, String password)
+		throws AccumuloException, AccumuloSecurityException {
+		
+		byte[] passwordDigest = digest(password);
+		
+		String key = key(instanceName, zooKeepers, username, hex(passwordDigest));
+		
+		SharedConnection connection = connections.get(key);
+		
+		if (connection != null && connection.authenticatedWith(passwordDigest)){
+			
+			return connection;
+		}
+		
+		synchronized (ConnectionRegistry.class) {
+			
+			// Another thread may have connected while we waited.
+			connection = connections.get(key);
+			
+			if (connection != null && connection.authenticatedWith(passwordDigest)){
+				
+				return connection;
+			}
+			
+			ZooKeeperInstance instance = instance(instanceName, zooKeepers);
+			
+			Connector connector = instance.getConnector(username, password);
+			
+			connection = new SharedConnection(instance, connector, passwordDigest);
+			
+			connections.put(key, connection);
+			
+			logger.info("Connected to {} as {}", instanceName, username);
+			
+			return connection;
+		}
+	}
+	
+	/**
+	 * Close the writers of every connection and forget the connections.  Call this when the
+	 * application is done writing.
+	 */
+	public static void shutdown(){
+		
+		synchronized (ConnectionRegistry.class) {
+			
+			for (SharedConnection connection : connections.values()){
+				
+				connection.close();
+			}
+			
+			clear();
+		}
+	}
+	
+	/**
+	 * Forget every connection, so that the next Cirrus reconnects and authenticates.
+	 */
+	public static void clear(){
+		
+		connections.clear();
+		instances.clear();
+	}
+	
+	/**
+	 * Get the ZooKeeper instance, creating it if necessary.  Callers must hold the registry lock.
+	 * @param instanceName Name of the Accumulo instance.
+	 * @param zooKeepers Comma-separated ZooKeeper servers.
+	 * @return ZooKeeper instance.
+	 */
+	static ZooKeeperInstance instance(String instanceName, String zooKeepers){
+		
+		String key = key(instanceName, zooKeepers);
+		
+		ZooKeeperInstance instance = instances.get(key);
+		
+		if (instance == null){
+			
+			instance = new ZooKeeperInstance(instanceName, zooKeepers);
+			
+			instances.put(key, instance);
+		}
+		
+		return instance;
+	}
+	
+	static String key(String... parts){
+		
+		StringBuilder sb = new StringBuilder();
+		
+		for (String part : parts){
+			
+			sb.append(part).append('\0');
+		}
+		
+		return sb.toString();
+	}
+	
+	static String hex(byte[] bytes){
+		
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		
+		for (byte b : bytes){
+			
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		
+		return sb.toString();
+	}
+	
+	static byte[] digest(String password){
+		
+		try {
+			
+			return MessageDigest.getInstance("SHA-256").digest(ConversionUtils.toByteArray(password));
+			
+		} catch (NoSuchAlgorithmException e) {
+			
+			// Every JVM is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.berico.accumulo;
 
 import java.math.BigInteger;
+import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -40,6 +41,11 @@ public class ConversionUtils {
 	static UUIDLexicoder uuidLex = new UUIDLexicoder();
 	static BytesLexicoder bytesLex = new BytesLexicoder();
 	
+	/**
+	 * Encoding of the Strings in a Key (row, family, qualifier, visibility).
+	 */
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	
 	/**
 	 * Registry of Lexicoders, index by the class type the support.
 	 */
@@ -71,6 +77,18 @@ public class ConversionUtils {
 	 */
 	public static <T> T convert(byte[] bytes, Class<T> clazz) throws UnsupportedDataTypeException {
 		
+		return lexicoderFor(clazz).decode(bytes);
+	}
+	
+	/**
+	 * Get the Lexicoder registered for the class type.
+	 * @param clazz Desired class type.
+	 * @return Lexicoder that encodes/decodes the type.
+	 * @throws UnsupportedDataTypeException Thrown if there is not a Lexicoder that
+	 * supports the submitted class type.
+	 */
+	public static <T> Lexicoder<T> lexicoderFor(Class<T> clazz) throws UnsupportedDataTypeException {
+		
 		if (!lexicoderRegistry.containsKey(clazz)){
 			throw new UnsupportedDataTypeException(
 				String.format("%s is not a supported conversion type.", clazz.getCanonicalName()));
@@ -79,7 +97,7 @@ public class ConversionUtils {
 		@SuppressWarnings("unchecked")
 		Lexicoder<T> lexicoder = (Lexicoder<T>) lexicoderRegistry.get(clazz);
 		
-		return lexicoder.decode(bytes);
+		return lexicoder;
 	}
 	
 	/**
@@ -211,7 +229,7 @@ public class ConversionUtils {
 	 */
 	public static double toDouble(byte[] bytes) {
 		
-	    return doubleLex.decode(bytes);
+	    return decodeDouble(bytes, 0, bytes.length);
 	}
 	
 	/**
@@ -221,7 +239,7 @@ public class ConversionUtils {
 	 */
 	public static int toInt(byte[] bytes) {
 		
-	    return intLex.decode(bytes);
+	    return decodeInt(bytes, 0, bytes.length);
 	}
 	
 	/**
@@ -243,7 +261,127 @@ public class ConversionUtils {
 	 */
 	public static long toLong(byte[] bytes) {
 		
-	    return longLex.decode(bytes);
+	    return decodeLong(bytes, 0, bytes.length);
+	}
+	
+	/* ####### Primitive Decoders ############################################################ */
+	
+	/*
+	 * The Typo lexicoders return boxed values.  These decode the same encodings straight
+	 * into primitives, from any slice of an array.
+	 * 
+	 * Typo encodes an unsigned long (or int) as a length byte followed by the value's
+	 * significant bytes (leading 0x00 bytes dropped; for negative values, leading 0xff bytes
+	 * dropped and the length byte stored as 16 - n, or 8 - n for an int).  Signed values are
+	 * encoded with the sign bit flipped, and doubles as their raw bits made sortable.
+	 */
+	
+	static final long LONG_SIGN_BIT = 0x8000000000000000L;
+	
+	static final int INT_SIGN_BIT = 0x80000000;
+	
+	/**
+	 * Decode a long encoded by the Typo LongLexicoder.
+	 * @param bytes Array holding the encoded value.
+	 * @param offset Start of the encoded value.
+	 * @param length Length of the encoded value.
+	 * @return Long value.
+	 */
+	public static long decodeLong(byte[] bytes, int offset, int length){
+		
+		return decodeULong(bytes, offset, length) ^ LONG_SIGN_BIT;
+	}
+	
+	/**
+	 * Decode an int encoded by the Typo IntegerLexicoder.
+	 * @param bytes Array holding the encoded value.
+	 * @param offset Start of the encoded value.
+	 * @param length Length of the encoded value.
+	 * @return Integer value.
+	 */
+	public static int decodeInt(byte[] bytes, int offset, int length){
+		
+		return decodeUInt(bytes, offset, length) ^ INT_SIGN_BIT;
+	}
+	
+	/**
+	 * Decode a double encoded by the Typo DoubleLexicoder.
+	 * @param bytes Array holding the encoded value.
+	 * @param offset Start of the encoded value.
+	 * @param length Length of the encoded value.
+	 * @return Double value.
+	 */
+	public static double decodeDouble(byte[] bytes, int offset, int length){
+		
+		long bits = decodeULong(bytes, offset, length);
+		
+		bits = (bits < 0)? bits ^ LONG_SIGN_BIT : ~bits;
+		
+		return Double.longBitsToDouble(bits);
+	}
+	
+	/**
+	 * Decode an unsigned long encoded by the Typo ULongLexicoder.
+	 * @param bytes Array holding the encoded value.
+	 * @param offset Start of the encoded value.
+	 * @param length Length of the encoded value.
+	 * @return Long value.
+	 */
+	static long decodeULong(byte[] bytes, int offset, int length){
+		
+		int prefix = bytes[offset];
+		
+		if (prefix < 0 || prefix > 16){
+			
+			throw new IllegalArgumentException("Unexpected length byte " + prefix);
+		}
+		
+		long value = 0;
+		
+		for (int i = offset + 1; i < offset + length; i++){
+			
+			value = (value << 8) | (bytes[i] & 0xffL);
+		}
+		
+		// Negative values dropped their leading 0xff bytes.
+		if (prefix > 8){
+			
+			value |= -1L << ((16 - prefix) << 3);
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Decode an unsigned int encoded by the Typo UIntegerLexicoder.
+	 * @param bytes Array holding the encoded value.
+	 * @param offset Start of the encoded value.
+	 * @param length Length of the encoded value.
+	 * @return Integer value.
+	 */
+	static int decodeUInt(byte[] bytes, int offset, int length){
+		
+		int prefix = bytes[offset];
+		
+		if (prefix < 0 || prefix > 8){
+			
+			throw new IllegalArgumentException("Unexpected length byte " + prefix);
+		}
+		
+		int value = 0;
+		
+		for (int i = offset + 1; i < offset + length; i++){
+			
+			value = (value << 8) | (bytes[i] & 0xff);
+		}
+		
+		// Negative values dropped their leading 0xff bytes.
+		if (prefix > 4){
+			
+			value |= -1 << ((8 - prefix) << 3);
+		}
+		
+		return value;
 	}
 	
 }
@@ -0,0 +1,139 @@
+package com.berico.accumulo;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.ByteSequence;
+
+/**
+ * The values of a scan decoded into a growable double array, with the row key
+ * of each value (see ScanOps.doubles(...)).
+ *
+ * Very large results can be stored off-heap, in a direct buffer, so they do
+ * not weigh on the garbage collector.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class DoubleColumn extends PrimitiveColumn {
+	
+	/**
+	 * On-heap values (null when stored off-heap).
+	 */
+	double[] values = null;
+	
+	/**
+	 * Off-heap values (null when stored on-heap).
+	 */
+	DoubleBuffer buffer = null;
+	
+	/**
+	 * Initialize an on-heap column.
+	 */
+	public DoubleColumn(){
+		
+		this(false);
+	}
+	
+	/**
+	 * Initialize the column.
+	 * @param offHeap Store the values in a direct buffer rather than on the heap.
+	 */
+	public DoubleColumn(boolean offHeap){
+		
+		super(offHeap);
+		
+		if (offHeap){
+			
+			this.buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY * 8).asDoubleBuffer();
+		}
+		else {
+			
+			this.values = new double[INITIAL_CAPACITY];
+		}
+	}
+	
+	/**
+	 * Append a value.
+	 * @param row Row key of the value.
+	 * @param value Value
+	 */
+	void add(ByteSequence row, double value){
+		
+		if (this.values != null){
+			
+			if (this.size == this.values.length){
+				
+				this.values = Arrays.copyOf(this.values, grow(this.values.length));
+			}
+			
+			this.values[this.size] = value;
+		}
+		else {
+			
+			if (this.size == this.buffer.capacity()){
+				
+				DoubleBuffer larger = ByteBuffer.allocateDirect(grow(this.buffer.capacity()) * 8).asDoubleBuffer();
+				
+				this.buffer.rewind();
+				
+				larger.put(this.buffer);
+				
+				this.buffer = larger;
+			}
+			
+			this.buffer.put(this.size, value);
+		}
+		
+		appendRow(row);
+	}
+	
+	/**
+	 * Get a value.
+	 * @param index Index of the value.
+	 * @return Value
+	 */
+	public double get(int index){
+		
+		checkIndex(index);
+		
+		return (this.values != null)? this.values[index] : this.buffer.get(index);
+	}
+	
+	/**
+	 * Copy the values into an array.
+	 * @return Values
+	 */
+	public double[] toArray(){
+		
+		if (this.values != null){
+			
+			return Arrays.copyOf(this.values, this.size);
+		}
+		
+		double[] copy = new double[this.size];
+		
+		for (int i = 0; i < this.size; i++){
+			
+			copy[i] = this.buffer.get(i);
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Sum of the values.
+	 * @return Sum
+	 */
+	public double sum(){
+		
+		double sum = 0;
+		
+		for (int i = 0; i < this.size; i++){
+			
+			sum += (this.values != null)? this.values[i] : this.buffer.get(i);
+		}
+		
+		return sum;
+	}
+}
@@ -0,0 +1,17 @@
+package com.berico.accumulo;
+
+/**
+ * Thrown (or set on the Mutation's future) when a BoundedIngestQueue has no
+ * room for a Mutation and its policy is not to wait.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class IngestQueueFullException extends RuntimeException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public IngestQueueFullException(long capacity, long queuedBytes){
+		
+		super(String.format("Ingest queue is full (%d of %d bytes queued)", queuedBytes, capacity));
+	}
+}
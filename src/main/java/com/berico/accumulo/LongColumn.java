@@ -0,0 +1,139 @@
+package com.berico.accumulo;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.ByteSequence;
+
+/**
+ * The values of a scan decoded into a growable long array, with the row key
+ * of each value (see ScanOps.longs(...)).
+ *
+ * Very large results can be stored off-heap, in a direct buffer, so they do
+ * not weigh on the garbage collector.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class LongColumn extends PrimitiveColumn {
+	
+	/**
+	 * On-heap values (null when stored off-heap).
+	 */
+	long[] values = null;
+	
+	/**
+	 * Off-heap values (null when stored on-heap).
+	 */
+	LongBuffer buffer = null;
+	
+	/**
+	 * Initialize an on-heap column.
+	 */
+	public LongColumn(){
+		
+		this(false);
+	}
+	
+	/**
+	 * Initialize the column.
+	 * @param offHeap Store the values in a direct buffer rather than on the heap.
+	 */
+	public LongColumn(boolean offHeap){
+		
+		super(offHeap);
+		
+		if (offHeap){
+			
+			this.buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY * 8).asLongBuffer();
+		}
+		else {
+			
+			this.values = new long[INITIAL_CAPACITY];
+		}
+	}
+	
+	/**
+	 * Append a value.
+	 * @param row Row key of the value.
+	 * @param value Value
+	 */
+	void add(ByteSequence row, long value){
+		
+		if (this.values != null){
+			
+			if (this.size == this.values.length){
+				
+				this.values = Arrays.copyOf(this.values, grow(this.values.length));
+			}
+			
+			this.values[this.size] = value;
+		}
+		else {
+			
+			if (this.size == this.buffer.capacity()){
+				
+				LongBuffer larger = ByteBuffer.allocateDirect(grow(this.buffer.capacity()) * 8).asLongBuffer();
+				
+				this.buffer.rewind();
+				
+				larger.put(this.buffer);
+				
+				this.buffer = larger;
+			}
+			
+			this.buffer.put(this.size, value);
+		}
+		
+		appendRow(row);
+	}
+	
+	/**
+	 * Get a value.
+	 * @param index Index of the value.
+	 * @return Value
+	 */
+	public long get(int index){
+		
+		checkIndex(index);
+		
+		return (this.values != null)? this.values[index] : this.buffer.get(index);
+	}
+	
+	/**
+	 * Copy the values into an array.
+	 * @return Values
+	 */
+	public long[] toArray(){
+		
+		if (this.values != null){
+			
+			return Arrays.copyOf(this.values, this.size);
+		}
+		
+		long[] copy = new long[this.size];
+		
+		for (int i = 0; i < this.size; i++){
+			
+			copy[i] = this.buffer.get(i);
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Sum of the values.
+	 * @return Sum
+	 */
+	public long sum(){
+		
+		long sum = 0;
+		
+		for (int i = 0; i < this.size; i++){
+			
+			sum += (this.values != null)? this.values[i] : this.buffer.get(i);
+		}
+		
+		return sum;
+	}
+}
@@ -0,0 +1,35 @@
+package com.berico.accumulo;
+
+import java.util.Iterator;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+
+/**
+ * Sums the versions of a cell holding longs written by this library
+ * (value(long), encoded with ConversionUtils).  Accumulo's SummingCombiner
+ * reads its own encodings (VARLEN, FIXEDLEN, STRING), not these.
+ *
+ * Runs on the tablet servers (see ScanOps.sum(...)), so this library's jar
+ * must be on their classpath.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class LongSummingCombiner extends Combiner {
+	
+	@Override
+	public Value reduce(Key key, Iterator<Value> values) {
+		
+		long sum = 0;
+		
+		while (values.hasNext()){
+			
+			byte[] bytes = values.next().get();
+			
+			sum += ConversionUtils.decodeLong(bytes, 0, bytes.length);
+		}
+		
+		return new Value(ConversionUtils.toByteArray(sum));
+	}
+}
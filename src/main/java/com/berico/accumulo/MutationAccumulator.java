@@ -0,0 +1,208 @@
+package com.berico.accumulo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.data.Mutation;
+
+import com.berico.accumulo.ValueMutationOps.CompletionHandler;
+
+/**
+ * Coalesces single-cell puts into one Mutation per row, so that writing
+ * fifty columns of a row through MutationOps.put() costs one server-side
+ * row commit instead of fifty.
+ *
+ * Rows stay "open" within a bounded window; when more rows are open than
+ * the window allows, the oldest row is handed to the sink.  A row is also
+ * handed off early once its Mutation grows past a byte threshold.
+ *
+ * This class is not thread-safe; like MutationOps, it is meant to be used
+ * by a single fluent chain.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class MutationAccumulator {
+	
+	/**
+	 * Default number of rows kept open at one time.
+	 */
+	public static int DEFAULT_WINDOW_SIZE = 32;
+	
+	/**
+	 * Default size (in bytes) at which an open row is handed off.
+	 */
+	public static int DEFAULT_MAX_MUTATION_BYTES = 512 * 1024;
+	
+	/**
+	 * Estimated bytes a cell adds to a Mutation on top of its column, visibility and value
+	 * (lengths, timestamp and flags).
+	 */
+	static final int CELL_OVERHEAD = 16;
+	
+	int windowSize;
+	
+	int maxMutationBytes;
+	
+	/**
+	 * Receives each coalesced Mutation when it leaves the window.
+	 */
+	CompletionHandler sink;
+	
+	/**
+	 * Open rows in the order they were started.
+	 */
+	LinkedHashMap<String, OpenRow> openRows = new LinkedHashMap<String, OpenRow>();
+	
+	/**
+	 * Initialize with the default window and mutation size.
+	 * @param sink Receives coalesced mutations.
+	 */
+	public MutationAccumulator(CompletionHandler sink){
+		
+		this(DEFAULT_WINDOW_SIZE, DEFAULT_MAX_MUTATION_BYTES, sink);
+	}
+	
+	/**
+	 * Initialize the accumulator.
+	 * @param windowSize Number of rows that may be open at one time (1 coalesces only consecutive puts).
+	 * @param maxMutationBytes Size at which an open row is handed off.
+	 * @param sink Receives coalesced mutations.
+	 */
+	public MutationAccumulator(int windowSize, int maxMutationBytes, CompletionHandler sink){
+		
+		if (windowSize < 1){
+			
+			throw new IllegalArgumentException("The coalescing window must hold at least one row.");
+		}
+		
+		this.windowSize = windowSize;
+		this.maxMutationBytes = maxMutationBytes;
+		this.sink = sink;
+	}
+	
+	/**
+	 * Write a cell to its row's open Mutation, starting one if the row is not in the window.
+	 * The row is handed off if it has grown too large, then the oldest rows are handed off
+	 * until the window is back within its size.
+	 * 
+	 * The size of each open row is tracked here rather than asked of its Mutation:
+	 * Mutation.numBytes() serializes the Mutation, after which no more cells can be added.
+	 * 
+	 * @param rowKey Row Key.
+	 * @param columnIdentifiers Column of the cell.
+	 * @param value Encoded value.
+	 * @param timestamp Timestamp of the cell; 0 lets the tablet server set it.
+	 * @throws MutationsRejectedException
+	 */
+	public void put(String rowKey, ColumnIdentifiers columnIdentifiers, byte[] value, long timestamp)
+		throws MutationsRejectedException {
+		
+		OpenRow row = this.openRows.get(rowKey);
+		
+		if (row == null){
+			
+			row = new OpenRow(rowKey);
+			
+			this.openRows.put(rowKey, row);
+		}
+		
+		ValueMutationOps.put(row.mutation, columnIdentifiers, value, timestamp);
+		
+		row.bytes += cellBytes(columnIdentifiers, value);
+		
+		if (row.bytes >= this.maxMutationBytes){
+			
+			this.openRows.remove(rowKey);
+			
+			this.sink.complete(row.mutation);
+		}
+		
+		Iterator<OpenRow> eldest = this.openRows.values().iterator();
+		
+		while (this.openRows.size() > this.windowSize){
+			
+			OpenRow oldest = eldest.next();
+			
+			eldest.remove();
+			
+			this.sink.complete(oldest.mutation);
+		}
+	}
+	
+	/**
+	 * Estimated bytes a cell adds to its row's Mutation.
+	 * @param columnIdentifiers Column of the cell.
+	 * @param value Encoded value.
+	 * @return Estimated size.
+	 */
+	static long cellBytes(ColumnIdentifiers columnIdentifiers, byte[] value){
+		
+		long bytes = CELL_OVERHEAD + value.length
+			+ columnIdentifiers.columnFamilyText().getLength() + columnIdentifiers.columnQualifierText().getLength();
+		
+		if (columnIdentifiers.hasVisibilityExpression()){
+			
+			bytes += columnIdentifiers.getVisibilityExpression().length();
+		}
+		
+		return bytes;
+	}
+	
+	/**
+	 * Hand every open row to the sink.
+	 * @throws MutationsRejectedException
+	 */
+	public void drain() throws MutationsRejectedException {
+		
+		if (this.openRows.isEmpty()){
+			
+			return;
+		}
+		
+		// Clear first so a rejected mutation is not handed off twice.
+		List<OpenRow> rows = new ArrayList<OpenRow>(this.openRows.values());
+		
+		this.openRows.clear();
+		
+		for (OpenRow row : rows){
+			
+			this.sink.complete(row.mutation);
+		}
+	}
+	
+	/**
+	 * Number of rows currently open.
+	 * @return Open row count.
+	 */
+	public int size(){
+		
+		return this.openRows.size();
+	}
+	
+	/**
+	 * Are there any open rows?
+	 * @return true if nothing is waiting to be handed off.
+	 */
+	public boolean isEmpty(){
+		
+		return this.openRows.isEmpty();
+	}
+	
+	/**
+	 * A row in the window and the estimated bytes written to it.
+	 */
+	static class OpenRow {
+		
+		Mutation mutation;
+		long bytes;
+		
+		OpenRow(String rowKey){
+			
+			this.mutation = new Mutation(rowKey);
+			this.bytes = rowKey.length();
+		}
+	}
+}
\ No newline at end of file
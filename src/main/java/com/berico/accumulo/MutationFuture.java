@@ -0,0 +1,57 @@
+package com.berico.accumulo;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.accumulo.core.data.Mutation;
+
+/**
+ * The result of an asynchronously submitted Mutation.  The future completes
+ * with the Mutation once it has been flushed to the tablet servers, or fails
+ * with the MutationsRejectedException (as the cause of the ExecutionException)
+ * that rejected it.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class MutationFuture extends FutureTask<Mutation> {
+	
+	/**
+	 * Never run; the future is completed by the submission queue.
+	 */
+	static final Callable<Mutation> NOT_RUNNABLE = new Callable<Mutation>(){
+		@Override
+		public Mutation call() throws Exception {
+			
+			throw new IllegalStateException("A MutationFuture is completed by the submission queue.");
+		}
+	};
+	
+	public MutationFuture(){
+		
+		super(NOT_RUNNABLE);
+	}
+	
+	/**
+	 * The Mutation was flushed.
+	 * @param mutation The Mutation.
+	 */
+	void completed(Mutation mutation){
+		
+		set(mutation);
+	}
+	
+	/**
+	 * The Mutation was rejected, or could not be submitted.
+	 * @param cause Why the Mutation was not written.
+	 */
+	void failed(Throwable cause){
+		
+		setException(cause);
+	}
+	
+	/**
+	 * The future is only completed by the submission queue.
+	 */
+	@Override
+	public void run() {}
+}
@@ -1,6 +1,8 @@
 package com.berico.accumulo;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -38,14 +40,52 @@ public class MutationOps extends TableFluentExtension {
      */
     public static int WRITER_NUMBER_OF_THREADS = 10;
     
+    /**
+     * Most mutations remembered for invalidating the client-side caches at the next flush;
+     * past this, the whole table is invalidated instead.
+     */
+    public static int MAX_UNFLUSHED_INVALIDATIONS = 10000;
+    
     /**
      * The underlying writer instance the fluent interface uses
      * to mutate the table in scope.
      */
     BatchWriter writer = null;
+    
+    /**
+     * Settings of the writer.
+     */
+    WriterConfig writerConfig = null;
+    
+    /**
+     * When true, every queued mutation is flushed to the tablet servers before
+     * the fluent call returns.  When false (the default), mutations accumulate in
+     * the BatchWriter and are sent when its memory buffer fills, its timeout elapses,
+     * flush() is called, or the chain is finished with done()/and().
+     */
+    boolean durable = false;
+    
+    /**
+     * Coalesces cells from put() into one Mutation per row before they
+     * reach the writer.
+     */
+    MutationAccumulator accumulator = null;
+    
+    /**
+     * Mutations handed to the writer since the last flush, whose cells the client-side
+     * caches forget once they are flushed (a read before the flush would cache them again).
+     */
+    List<Mutation> unflushed = new ArrayList<Mutation>();
+    
+    /**
+     * Set when more mutations were handed off than are remembered; the next flush
+     * invalidates the whole table instead.
+     */
+    boolean unflushedOverflow = false;
 	
 	/**
-	 * Initialize the extension with table name and outer fluent interface.
+	 * Initialize the extension with table name and outer fluent interface, using the
+	 * writer configuration set on Cirrus.
 	 * @param tableName Name of the table in scope.
 	 * @param cirrus The outer fluent interface.
 	 * @throws AccumuloException
@@ -56,12 +96,41 @@ public class MutationOps extends TableFluentExtension {
 	public MutationOps(String tableName, Cirrus cirrus)
 		throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException {
 		
+		this(tableName, cirrus, cirrus.writerConfig());
+	}
+	
+	/**
+	 * Initialize the extension with table name, outer fluent interface and writer configuration.
+	 * @param tableName Name of the table in scope.
+	 * @param cirrus The outer fluent interface.
+	 * @param writerConfig Settings of the BatchWriter used by this chain.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException 
+	 */
+	public MutationOps(String tableName, Cirrus cirrus, WriterConfig writerConfig)
+		throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException {
+		
 		super(tableName, cirrus);
 		
-		this.writer = this.cirrus.connector.createBatchWriter(
-				this.tableName, WRITER_MEMORY_BUFFER, WRITER_TIMEOUT, WRITER_NUMBER_OF_THREADS);
+		this.writerConfig = writerConfig;
 		
-		registerShutdownHook();
+		// Writers are shared per table and configuration; closing this one returns the lease.
+		this.writer = this.cirrus.lease(this.tableName, this.writerConfig);
+		
+		this.accumulator = new MutationAccumulator(new CompletionHandler(){
+			@Override
+			public void complete(Mutation mutation) throws MutationsRejectedException {
+				
+				handingOff(mutation);
+				
+				writer.addMutation(mutation);
+			}
+		});
+		
+		// Cirrus.shutdown() finishes the chain if it is never done.
+		this.cirrus.opened(this);
 	}
 
 	/**
@@ -112,31 +181,120 @@ public class MutationOps extends TableFluentExtension {
 	}
 	
 	/**
-	 * Forms the mutation and completion handler and passes control to the ValueOps fluent interface.
+	 * Perform an atomic creation/insertion mutation.
+	 * @param rowKey Row Key.
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @return Fluent interface to set the value and timestamp.
+	 */
+	public ValueMutationOps<MutationOps> put(String rowKey, CompiledColumn column){
+		
+		return put(rowKey, column.identifiers);
+	}
+	
+	/**
+	 * Passes control to the ValueOps fluent interface, writing the cell once its value is set.
+	 * 
+	 * Cells for the same row are coalesced into a single Mutation (see MutationAccumulator), so
+	 * consecutive puts against one row cost the same as a withRow() chain.  The row is only
+	 * opened when the value is set, so a put() that is never given a value leaves nothing behind.
+	 * 
 	 * @param rowKey Row Key
 	 * @param columnIdentifiers Column Identifiers
 	 * @return Fluent interface for setting the value and timestamp.
 	 */
-	ValueMutationOps<MutationOps> put(String rowKey, ColumnIdentifiers columnIdentifiers) {
-		
-		Mutation mutation = new Mutation(rowKey);
+	ValueMutationOps<MutationOps> put(final String rowKey, final ColumnIdentifiers columnIdentifiers) {
 		
-		return new ValueMutationOps<MutationOps>(columnIdentifiers, mutation, this, new CompletionHandler(){
+		return new ValueMutationOps<MutationOps>(columnIdentifiers, null, this, null){
 			@Override
-			public void complete(Mutation mutation)  throws MutationsRejectedException {
+			MutationOps handleValue(byte[] value, long timestamp) throws MutationsRejectedException {
+				
+				accumulator.put(rowKey, columnIdentifiers, value, timestamp);
+				
+				if (durable){
+					
+					queueMutations();
+				}
 				
-				queueMutations(mutation);
+				return parent;
 			}
-		});
+		};
+	}
+	
+	/**
+	 * Get the settings of the writer used by this chain.
+	 * @return Writer configuration.
+	 */
+	public WriterConfig getWriterConfig(){
+		
+		return this.writerConfig;
+	}
+	
+	/* ############## Write Modes ###################################################################### */
+	
+	/**
+	 * Flush every mutation to the tablet servers as soon as it is queued.  Each put() or endRow()
+	 * becomes a synchronous round trip, so only use this when every call must be durable
+	 * before the chain continues.
+	 * @return Returns the fluent interface.
+	 * @throws MutationsRejectedException Thrown if mutations already buffered are rejected.
+	 */
+	public MutationOps durable() throws MutationsRejectedException {
+		
+		// Anything buffered before the switch should not outlive the switch.
+		flush();
+		
+		this.durable = true;
+		
+		return this;
+	}
+	
+	/**
+	 * Buffer mutations in the BatchWriter (the default), sending them when the writer's
+	 * memory buffer fills, its timeout elapses, flush() is called, or the chain is done().
+	 * @return Returns the fluent interface.
+	 */
+	public MutationOps buffered(){
+		
+		this.durable = false;
+		
+		return this;
+	}
+	
+	/**
+	 * Is every mutation flushed as soon as it is queued?
+	 * @return true if the chain is in durable mode.
+	 */
+	public boolean isDurable(){
+		
+		return this.durable;
+	}
+	
+	/**
+	 * Send all buffered mutations to the tablet servers, blocking until they are written.
+	 * @return Returns the fluent interface.
+	 * @throws MutationsRejectedException
+	 */
+	public MutationOps flush() throws MutationsRejectedException {
+		
+		accumulator.drain();
+		
+		writer.flush();
+		
+		flushed();
+		
+		return this;
 	}
 	
 	/**
 	 * Set the bytes to store before sending a batch.
 	 * 
-	 * !!!! This sets the global value for the FluentExtension. !!!!
+	 * !!!! This sets the global value for the FluentExtension, and only affects writers
+	 * created afterwards.  Prefer an immutable WriterConfig (WriterConfig.withMemoryBuffer(), 
+	 * Cirrus.writerConfig() or TableOps.mutate(WriterConfig)). !!!!
 	 * 
 	 * @param bufferSizeBytes Buffer size in bytes
 	 */
+	@Deprecated
 	public void setWriterMemoryBuffer(long bufferSizeBytes){
 		
 		WRITER_MEMORY_BUFFER = bufferSizeBytes;
@@ -145,10 +303,13 @@ public class MutationOps extends TableFluentExtension {
 	/**
 	 * Set the milliseconds to wait before sending a batch.
 	 *  
-	 * !!!! This sets the global value for the FluentExtension. !!!!
+	 * !!!! This sets the global value for the FluentExtension, and only affects writers
+	 * created afterwards.  Prefer an immutable WriterConfig (WriterConfig.withTimeout(), 
+	 * Cirrus.writerConfig() or TableOps.mutate(WriterConfig)). !!!!
 	 * 
 	 * @param timeout Timeout in milliseconds
 	 */
+	@Deprecated
 	public void setWriterTimeout(long timeout){
 	
 		WRITER_TIMEOUT = timeout;
@@ -157,10 +318,13 @@ public class MutationOps extends TableFluentExtension {
 	/**
 	 * Set the number of threads to use for the writer.
 	 * 
-	 * !!!! This sets the global value for the FluentExtension. !!!!
+	 * !!!! This sets the global value for the FluentExtension, and only affects writers
+	 * created afterwards.  Prefer an immutable WriterConfig (WriterConfig.withNumberOfThreads(), 
+	 * Cirrus.writerConfig() or TableOps.mutate(WriterConfig)). !!!!
 	 * 
 	 * @param numberOfThreads Number of threads to use
 	 */
+	@Deprecated
 	public void setWriterNumberOfThreads(int numberOfThreads){
 		
 		WRITER_NUMBER_OF_THREADS = numberOfThreads;
@@ -168,20 +332,85 @@ public class MutationOps extends TableFluentExtension {
 	
 	/**
 	 * A convenience method for child fluents to queue mutations with the encapsulated
-	 * BatchWriter.
+	 * BatchWriter.  The mutations are only flushed immediately in durable mode.
+	 * 
+	 * Rows coalesced from put() are handed to the writer first, so mutations reach
+	 * the writer in the order the chain made them.
+	 * 
 	 * @param mutations Mutations to be queued.
 	 * @throws MutationsRejectedException
 	 */
 	void queueMutations(Mutation... mutations) throws MutationsRejectedException{
 		
+		accumulator.drain();
+		
+		for (Mutation mutation : mutations){
+			
+			handingOff(mutation);
+		}
+		
 		writer.addMutations(Arrays.asList(mutations));
 		
-		writer.flush();
+		if (this.durable){
+			
+			writer.flush();
+			
+			flushed();
+		}
+	}
+	
+	/**
+	 * A mutation is about to be handed to the writer: add its row to the table's row filter
+	 * and remember it for invalidating the client-side caches once it is flushed.
+	 * @param mutation The mutation.
+	 */
+	void handingOff(Mutation mutation){
+		
+		this.cirrus.writing(this.tableName, mutation);
+		
+		if (!this.cirrus.isCaching() || this.unflushedOverflow){
+			
+			return;
+		}
+		
+		if (this.unflushed.size() >= MAX_UNFLUSHED_INVALIDATIONS){
+			
+			this.unflushedOverflow = true;
+			
+			this.unflushed.clear();
+		}
+		else {
+			
+			this.unflushed.add(mutation);
+		}
+	}
+	
+	/**
+	 * The writer was flushed (or closed): the client-side caches forget the cells written since
+	 * the last flush.
+	 */
+	void flushed(){
+		
+		if (this.unflushedOverflow){
+			
+			this.cirrus.tableChanged(this.tableName);
+		}
+		else {
+			
+			for (Mutation mutation : this.unflushed){
+				
+				this.cirrus.written(this.tableName, mutation);
+			}
+		}
+		
+		this.unflushed.clear();
+		
+		this.unflushedOverflow = false;
 	}
 	
 	
 	/**
-	 * Shutdown the writer and return back to the Cirrus interface.
+	 * Flush the writer, return its lease and go back to the Cirrus interface.
 	 */
 	@Override
 	public Cirrus and() {
@@ -192,7 +421,7 @@ public class MutationOps extends TableFluentExtension {
 	}
 	
 	/**
-	 * Shutdown the writer and return back to the Cirrus interface.
+	 * Flush the writer, return its lease and go back to the Cirrus interface.
 	 */
 	@Override
 	public Cirrus done() {
@@ -205,34 +434,35 @@ public class MutationOps extends TableFluentExtension {
 	}
 
 	/**
-	 * Close the writer.
+	 * Write the coalesced rows, flush the writer and return its lease to the pool.
 	 */
 	void close(){
 		
-		logger.info("Closing writer for {}", writer);
+		logger.info("Releasing writer for {}", tableName);
+		
+		this.cirrus.closed(this);
 		
 		try {
 			
-			writer.close();
+			accumulator.drain();
 			
 		} catch (MutationsRejectedException e) {
 			
 			e.printStackTrace();
 		}
-	}
-	
-	/**
-	 * This will be called when the Application terminates.  In this case, any remaining
-	 * mutations will be flushed when the writer closes.
-	 */
-	void registerShutdownHook(){
-		
-		logger.info("Shutdown hook registered");
 		
-		Runtime.getRuntime().addShutdownHook(
-		new Thread(){
-			@Override
-			public void run(){ close(); }
-		});
+		try {
+			
+			writer.close();
+			
+		} catch (MutationsRejectedException e) {
+			
+			e.printStackTrace();
+		}
+		finally {
+			
+			// Forget the cells even if the close failed; some may have been written.
+			flushed();
+		}
 	}
 }
@@ -0,0 +1,167 @@
+package com.berico.accumulo;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.berico.accumulo.CellValueRetrievalOps.DoubleValueHandler;
+import com.berico.accumulo.CellValueRetrievalOps.IntValueHandler;
+import com.berico.accumulo.CellValueRetrievalOps.LongValueHandler;
+
+/**
+ * A cursor over scanned cells that decodes each value straight from the
+ * Value's bytes into a primitive, so numeric scans create no Integer, Long,
+ * Double or Entry objects per cell (unlike TypedIterator).
+ * 
+ * Either advance the cursor with next() and read the current cell with
+ * key()/intValue()/longValue()/doubleValue(), or hand every remaining value
+ * to a primitive handler with forEachInt/forEachLong/forEachDouble.
+ * 
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class PrimitiveCellIterator {
+	
+	Iterator<Entry<Key, Value>> decoratedIterator;
+	
+	/**
+	 * Cell the cursor is on (null before the first call to next()).
+	 */
+	Entry<Key, Value> current = null;
+	
+	public PrimitiveCellIterator(Iterator<Entry<Key, Value>> iterator){
+		
+		this.decoratedIterator = iterator;
+	}
+	
+	/**
+	 * Is there another cell?
+	 * @return true if next() will succeed.
+	 */
+	public boolean hasNext(){
+		
+		return this.decoratedIterator.hasNext();
+	}
+	
+	/**
+	 * Move the cursor to the next cell.
+	 * @return Returns the cursor.
+	 */
+	public PrimitiveCellIterator next(){
+		
+		this.current = this.decoratedIterator.next();
+		
+		return this;
+	}
+	
+	/**
+	 * Get the key of the current cell.
+	 * @return Key
+	 */
+	public Key key(){
+		
+		return current().getKey();
+	}
+	
+	/**
+	 * Decode the current cell's value as an int.
+	 * @return Value
+	 */
+	public int intValue(){
+		
+		byte[] bytes = current().getValue().get();
+		
+		return ConversionUtils.decodeInt(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Decode the current cell's value as a long.
+	 * @return Value
+	 */
+	public long longValue(){
+		
+		byte[] bytes = current().getValue().get();
+		
+		return ConversionUtils.decodeLong(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Decode the current cell's value as a double.
+	 * @return Value
+	 */
+	public double doubleValue(){
+		
+		byte[] bytes = current().getValue().get();
+		
+		return ConversionUtils.decodeDouble(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Hand every remaining value to the handler as an int.
+	 * @param handler Receives each value.
+	 * @return Number of values handled.
+	 */
+	public int forEachInt(IntValueHandler handler){
+		
+		int count = 0;
+		
+		while (hasNext()){
+			
+			handler.handle(next().intValue());
+			
+			count++;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Hand every remaining value to the handler as a long.
+	 * @param handler Receives each value.
+	 * @return Number of values handled.
+	 */
+	public int forEachLong(LongValueHandler handler){
+		
+		int count = 0;
+		
+		while (hasNext()){
+			
+			handler.handle(next().longValue());
+			
+			count++;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Hand every remaining value to the handler as a double.
+	 * @param handler Receives each value.
+	 * @return Number of values handled.
+	 */
+	public int forEachDouble(DoubleValueHandler handler){
+		
+		int count = 0;
+		
+		while (hasNext()){
+			
+			handler.handle(next().doubleValue());
+			
+			count++;
+		}
+		
+		return count;
+	}
+	
+	Entry<Key, Value> current(){
+		
+		if (this.current == null){
+			
+			throw new NoSuchElementException("Call next() before reading the current cell.");
+		}
+		
+		return this.current;
+	}
+}
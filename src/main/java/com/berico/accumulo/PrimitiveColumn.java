@@ -0,0 +1,158 @@
+package com.berico.accumulo;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.ByteSequence;
+
+/**
+ * Base of the columnar scan results (LongColumn, DoubleColumn): the values
+ * of a scan decoded into a primitive array, with the row key of each value
+ * held in a parallel structure.
+ *
+ * Row keys are stored back to back in one buffer, with an array of offsets
+ * marking where each begins, so a result of millions of cells costs a
+ * handful of arrays rather than an object per cell.  Off-heap columns keep
+ * both the values and the row keys in direct buffers.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public abstract class PrimitiveColumn {
+	
+	static final int INITIAL_CAPACITY = 1024;
+	
+	/**
+	 * Number of values.
+	 */
+	int size = 0;
+	
+	/**
+	 * Row keys, back to back (position marks the end of the last one).
+	 */
+	ByteBuffer rowBytes;
+	
+	/**
+	 * Start of each row key in rowBytes; rowOffsets[size] is the end of the last one.
+	 */
+	int[] rowOffsets = new int[INITIAL_CAPACITY + 1];
+	
+	final boolean offHeap;
+	
+	/**
+	 * Initialize the row key storage.
+	 * @param offHeap Store the row keys in a direct buffer.
+	 */
+	PrimitiveColumn(boolean offHeap){
+		
+		this.offHeap = offHeap;
+		
+		this.rowBytes = allocate(INITIAL_CAPACITY * 16);
+	}
+	
+	/**
+	 * Number of values in the column.
+	 * @return Size
+	 */
+	public int size(){
+		
+		return this.size;
+	}
+	
+	public boolean isEmpty(){
+		
+		return this.size == 0;
+	}
+	
+	/**
+	 * Get the row key of a value.
+	 * @param index Index of the value.
+	 * @return Row key
+	 */
+	public String row(int index){
+		
+		return new String(rowBytes(index), ConversionUtils.UTF8);
+	}
+	
+	/**
+	 * Get a copy of the row key bytes of a value.
+	 * @param index Index of the value.
+	 * @return Row key bytes
+	 */
+	public byte[] rowBytes(int index){
+		
+		checkIndex(index);
+		
+		int start = this.rowOffsets[index];
+		
+		byte[] row = new byte[this.rowOffsets[index + 1] - start];
+		
+		ByteBuffer view = this.rowBytes.duplicate();
+		
+		view.position(start);
+		
+		view.get(row);
+		
+		return row;
+	}
+	
+	/**
+	 * Append a row key, growing the arrays as needed.  Called by subclasses after
+	 * storing the value at index size.
+	 * @param row Row key of the value.
+	 */
+	void appendRow(ByteSequence row){
+		
+		int start = this.rowOffsets[this.size];
+		int length = row.length();
+		
+		if (length > this.rowBytes.remaining()){
+			
+			ByteBuffer larger = allocate(Math.max(this.rowBytes.capacity() * 2, start + length));
+			
+			this.rowBytes.flip();
+			
+			larger.put(this.rowBytes);
+			
+			this.rowBytes = larger;
+		}
+		
+		this.rowBytes.put(row.getBackingArray(), row.offset(), length);
+		
+		if (this.size + 2 > this.rowOffsets.length){
+			
+			this.rowOffsets = Arrays.copyOf(this.rowOffsets, this.rowOffsets.length * 2);
+		}
+		
+		this.size++;
+		
+		this.rowOffsets[this.size] = start + length;
+	}
+	
+	public boolean isOffHeap(){
+		
+		return this.offHeap;
+	}
+	
+	ByteBuffer allocate(int capacity){
+		
+		return (this.offHeap)? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+	
+	/**
+	 * Capacity needed to hold one more value.
+	 * @param capacity Current capacity.
+	 * @return New capacity.
+	 */
+	int grow(int capacity){
+		
+		return (this.size < capacity)? capacity : capacity * 2;
+	}
+	
+	void checkIndex(int index){
+		
+		if (index < 0 || index >= this.size){
+			
+			throw new IndexOutOfBoundsException("Index " + index + " of " + this.size);
+		}
+	}
+}
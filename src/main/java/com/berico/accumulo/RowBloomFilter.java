@@ -0,0 +1,234 @@
+package com.berico.accumulo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.security.Authorizations;
+
+import org.apache.hadoop.util.bloom.BloomFilter;
+import org.apache.hadoop.util.bloom.Key;
+import org.apache.hadoop.util.hash.Hash;
+
+/**
+ * A client-side Bloom filter of the row ids in a table, so that lookups of
+ * rows that are definitely absent (ScanOps.cell(...), ScanOps.row(...)) are
+ * answered without a scan.
+ *
+ * The filter is built from a scan of the table's row ids
+ * (TableOps.buildRowFilter(...)) or loaded from a file, and rows written
+ * through Cirrus are added as they are written.  It is only correct while
+ * every write to the table goes through Cirrus on this connection: a row
+ * written by another client is reported absent until the filter is rebuilt.
+ *
+ * A filter holds the rows visible to the authorizations it was built with,
+ * so it only rules rows out for lookups whose authorizations are a subset
+ * of those: a scan with broader authorizations may see rows it never held.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class RowBloomFilter {
+	
+	/**
+	 * Default probability that an absent row is reported as possibly present.
+	 */
+	public static double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+	
+	final BloomFilter filter;
+	
+	/**
+	 * Authorizations the rows in the filter were read with.
+	 */
+	final Authorizations authorizations;
+	
+	/**
+	 * Set while the filter is being built: rows written are added, but it rules nothing out.
+	 */
+	volatile boolean building = false;
+	
+	/**
+	 * Initialize an empty filter, for the rows visible without authorizations, sized for
+	 * the rows and false positive rate.
+	 * @param expectedRows Number of rows the filter will hold.
+	 * @param falsePositiveRate Probability that an absent row is reported as possibly present.
+	 */
+	public RowBloomFilter(int expectedRows, double falsePositiveRate){
+		
+		this(expectedRows, falsePositiveRate, new Authorizations());
+	}
+	
+	/**
+	 * Initialize an empty filter sized for the rows and false positive rate.
+	 * @param expectedRows Number of rows the filter will hold.
+	 * @param falsePositiveRate Probability that an absent row is reported as possibly present.
+	 * @param authorizations Authorizations the rows added to the filter are visible to.
+	 */
+	public RowBloomFilter(int expectedRows, double falsePositiveRate, Authorizations authorizations){
+		
+		if (expectedRows <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1){
+			
+			throw new IllegalArgumentException(
+				"Expected rows must be positive and the false positive rate between 0 and 1.");
+		}
+		
+		// m = -n ln(p) / ln(2)^2 bits, k = (m / n) ln(2) hashes.
+		int vectorSize = (int) Math.ceil(-expectedRows * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		
+		int numberOfHashes = Math.max(1, (int) Math.round((double) vectorSize / expectedRows * Math.log(2)));
+		
+		this.filter = new BloomFilter(vectorSize, numberOfHashes, Hash.MURMUR_HASH);
+		this.authorizations = authorizations;
+	}
+	
+	RowBloomFilter(BloomFilter filter, Authorizations authorizations){
+		
+		this.filter = filter;
+		this.authorizations = authorizations;
+	}
+	
+	/**
+	 * Get the authorizations the rows in the filter were read with.
+	 * @return Authorizations
+	 */
+	public Authorizations authorizations(){
+		
+		return this.authorizations;
+	}
+	
+	/**
+	 * Can the filter rule rows out for a lookup with these authorizations, i.e. are they a
+	 * subset of the filter's?
+	 * @param lookup Authorizations of the lookup.
+	 * @return true if every row the lookup can see was visible to the filter.
+	 */
+	public boolean covers(Authorizations lookup){
+		
+		return isSubset(lookup, this.authorizations);
+	}
+	
+	/**
+	 * Was the filter built with these authorizations?
+	 * @param authorizations Authorizations
+	 * @return true if they equal the filter's.
+	 */
+	public boolean hasAuthorizations(Authorizations authorizations){
+		
+		return isSubset(authorizations, this.authorizations) && isSubset(this.authorizations, authorizations);
+	}
+	
+	static boolean isSubset(Authorizations subset, Authorizations superset){
+		
+		for (byte[] authorization : subset.getAuthorizations()){
+			
+			if (!superset.contains(authorization)){
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Add a row id.
+	 * @param row Row
+	 */
+	public void add(String row){
+		
+		add(row.getBytes(ConversionUtils.UTF8));
+	}
+	
+	/**
+	 * Add a row id.
+	 * @param row Row bytes.
+	 */
+	public synchronized void add(byte[] row){
+		
+		this.filter.add(new Key(row));
+	}
+	
+	/**
+	 * Might the table contain the row?
+	 * @param row Row
+	 * @return false if the row is definitely absent.
+	 */
+	public synchronized boolean mightContain(String row){
+		
+		return this.filter.membershipTest(new Key(row.getBytes(ConversionUtils.UTF8)));
+	}
+	
+	/* ####### Persistence ##################################################################### */
+	
+	/**
+	 * Write the filter, and the authorizations it was built with, to a file.
+	 * @param file File to write.
+	 * @throws IOException
+	 */
+	public synchronized void save(File file) throws IOException {
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		
+		try {
+			
+			List<byte[]> authorizations = this.authorizations.getAuthorizations();
+			
+			out.writeInt(authorizations.size());
+			
+			for (byte[] authorization : authorizations){
+				
+				out.writeInt(authorization.length);
+				out.write(authorization);
+			}
+			
+			this.filter.write(out);
+		}
+		finally {
+			
+			out.close();
+		}
+	}
+	
+	/**
+	 * Read a filter written by save(...).
+	 * @param file File to read.
+	 * @return The filter.
+	 * @throws IOException
+	 */
+	public static RowBloomFilter load(File file) throws IOException {
+		
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		
+		try {
+			
+			int size = in.readInt();
+			
+			List<byte[]> authorizations = new ArrayList<byte[]>(size);
+			
+			for (int i = 0; i < size; i++){
+				
+				byte[] authorization = new byte[in.readInt()];
+				
+				in.readFully(authorization);
+				
+				authorizations.add(authorization);
+			}
+			
+			BloomFilter filter = new BloomFilter();
+			
+			filter.readFields(in);
+			
+			return new RowBloomFilter(filter, new Authorizations(authorizations));
+		}
+		finally {
+			
+			in.close();
+		}
+	}
+}
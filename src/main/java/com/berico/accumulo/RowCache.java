@@ -0,0 +1,655 @@
+package com.berico.accumulo;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+
+/**
+ * An off-heap cache of the rows read by ScanOps.row(...), for read-mostly
+ * tables scanned at high rates.
+ *
+ * Rows are serialized into fixed-size blocks of one direct ByteBuffer
+ * allocated up front, so the memory budget is fixed and cached rows cost the
+ * garbage collector nothing.  When every block is taken, the CLOCK policy
+ * picks the block to reuse: a hand sweeps the blocks, sparing (and clearing)
+ * any read since it last passed.  A row larger than a block is not cached.
+ *
+ * A hit copies the row's block to the heap in one piece, and the cells are
+ * decoded from that copy as RowValueRetrievalOps iterates them.  Like the
+ * CellCache, rows expire after a TTL, writes made through Cirrus
+ * invalidate the rows they touch once they are flushed, and a row scanned
+ * before an invalidation of it is not cached (see stamp(...)).
+ *
+ * One cache is shared by every Cirrus on the same connection, and it is
+ * disabled until Cirrus.rowCache(...) sizes it.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class RowCache {
+	
+	/**
+	 * Default size of a block, and so of the largest row cached.
+	 */
+	public static int DEFAULT_BLOCK_SIZE = 8 * 1024;
+	
+	/**
+	 * Default milliseconds a row is trusted before it is scanned again.
+	 */
+	public static long DEFAULT_TTL = 60000L;
+	
+	/**
+	 * Number of invalidation stamps; rows share a stamp by hash.
+	 */
+	static final int STAMP_STRIPES = 64;
+	
+	int blockSize = DEFAULT_BLOCK_SIZE;
+	
+	long ttl = DEFAULT_TTL;
+	
+	/**
+	 * The blocks, back to back; null while the cache is disabled.
+	 */
+	ByteBuffer arena = null;
+	
+	/**
+	 * Per block: the row and authorizations it holds (null if free), bytes used, expiry
+	 * and CLOCK reference bit.
+	 */
+	Address[] owners = new Address[0];
+	String[] ownerAuthorizations = new String[0];
+	int[] lengths = new int[0];
+	long[] expiresAt = new long[0];
+	boolean[] referenced = new boolean[0];
+	
+	/**
+	 * Position of the CLOCK hand.
+	 */
+	int hand = 0;
+	
+	/**
+	 * Block holding each cached row, by authorizations.
+	 */
+	Map<Address, Map<String, Integer>> blocks = new HashMap<Address, Map<String, Integer>>();
+	
+	/**
+	 * Invalidation counts, by stripe of rows; guarded by this.
+	 */
+	final long[] stamps = new long[STAMP_STRIPES];
+	
+	final AtomicLong hits = new AtomicLong();
+	
+	final AtomicLong misses = new AtomicLong();
+	
+	final AtomicLong evictions = new AtomicLong();
+	
+	final AtomicLong invalidations = new AtomicLong();
+	
+	final AtomicLong oversized = new AtomicLong();
+	
+	/**
+	 * Allocate the cache's memory, dropping every cached row.
+	 * @param capacity Bytes of off-heap memory (at most Integer.MAX_VALUE); 0 disables the cache.
+	 * @param blockSize Bytes per block; rows that serialize larger are not cached.
+	 * @param ttl Milliseconds a row is trusted before it is scanned again.
+	 * @return The cache.
+	 */
+	public synchronized RowCache configure(long capacity, int blockSize, long ttl){
+		
+		if (capacity < 0 || capacity > Integer.MAX_VALUE || blockSize <= 0){
+			
+			throw new IllegalArgumentException(
+				"Capacity must be between 0 and " + Integer.MAX_VALUE + " bytes, and the block size positive.");
+		}
+		
+		int numberOfBlocks = (int) (capacity / blockSize);
+		
+		this.blockSize = blockSize;
+		this.ttl = ttl;
+		this.arena = (numberOfBlocks == 0)? null : ByteBuffer.allocateDirect(numberOfBlocks * blockSize);
+		this.owners = new Address[numberOfBlocks];
+		this.ownerAuthorizations = new String[numberOfBlocks];
+		this.lengths = new int[numberOfBlocks];
+		this.expiresAt = new long[numberOfBlocks];
+		this.referenced = new boolean[numberOfBlocks];
+		this.hand = 0;
+		this.blocks.clear();
+		
+		stampAll();
+		
+		return this;
+	}
+	
+	public synchronized boolean isEnabled(){
+		
+		return this.arena != null;
+	}
+	
+	/* ####### Lookups ######################################################################### */
+	
+	/**
+	 * Get the cells of a cached row.
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations the row was read with.
+	 * @param row Row
+	 * @return Iterator over the row's cells, or null if the row is not cached or has expired.
+	 */
+	public Iterator<Entry<Key, Value>> get(String tableName, Authorizations authorizations, String row){
+		
+		byte[] block = null;
+		
+		synchronized (this){
+			
+			Integer index = blockOf(new Address(tableName, row), String.valueOf(authorizations));
+			
+			if (index != null){
+				
+				if (System.currentTimeMillis() >= this.expiresAt[index]){
+					
+					free(index);
+				}
+				else {
+					
+					this.referenced[index] = true;
+					
+					block = new byte[this.lengths[index]];
+					
+					ByteBuffer view = this.arena.duplicate();
+					
+					view.position(index * this.blockSize);
+					
+					view.get(block);
+				}
+			}
+		}
+		
+		if (block == null){
+			
+			this.misses.incrementAndGet();
+			
+			return null;
+		}
+		
+		this.hits.incrementAndGet();
+		
+		return new BlockIterator(block);
+	}
+	
+	/**
+	 * Take the stamp of a row before scanning it, to pass to put(...).
+	 * @param tableName Name of the table.
+	 * @param row Row
+	 * @return Stamp
+	 */
+	public synchronized long stamp(String tableName, String row){
+		
+		return this.stamps[stripe(new Address(tableName, row))];
+	}
+	
+	/**
+	 * Cache the cells of a row read from the table.
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations the row was read with.
+	 * @param row Row
+	 * @param cells The row's cells, in order.
+	 */
+	public void put(String tableName, Authorizations authorizations, String row, List<Entry<Key, Value>> cells){
+		
+		put(tableName, authorizations, row, cells, stamp(tableName, row));
+	}
+	
+	/**
+	 * Cache the cells of a row read from the table, unless the row was invalidated since
+	 * the stamp was taken (the scan may have read the row before a write flushed since).
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations the row was read with.
+	 * @param row Row
+	 * @param cells The row's cells, in order.
+	 * @param stamp Stamp taken by stamp(...) before the row was scanned.
+	 */
+	public void put(String tableName, Authorizations authorizations, String row, List<Entry<Key, Value>> cells, long stamp){
+		
+		if (!isEnabled()){
+			
+			return;
+		}
+		
+		byte[] block = serialize(cells);
+		
+		if (block.length > this.blockSize){
+			
+			this.oversized.incrementAndGet();
+			
+			return;
+		}
+		
+		synchronized (this){
+			
+			if (this.arena == null || block.length > this.blockSize){
+				
+				return;
+			}
+			
+			Address address = new Address(tableName, row);
+			
+			if (this.stamps[stripe(address)] != stamp){
+				
+				return;
+			}
+			
+			String auths = String.valueOf(authorizations);
+			
+			Integer existing = blockOf(address, auths);
+			
+			int index = (existing != null)? existing : claim();
+			
+			ByteBuffer view = this.arena.duplicate();
+			
+			view.position(index * this.blockSize);
+			
+			view.put(block);
+			
+			this.owners[index] = address;
+			this.ownerAuthorizations[index] = auths;
+			this.lengths[index] = block.length;
+			this.expiresAt[index] = System.currentTimeMillis() + this.ttl;
+			this.referenced[index] = false;
+			
+			Map<String, Integer> byAuthorizations = this.blocks.get(address);
+			
+			if (byAuthorizations == null){
+				
+				byAuthorizations = new HashMap<String, Integer>(4);
+				
+				this.blocks.put(address, byAuthorizations);
+			}
+			
+			byAuthorizations.put(auths, index);
+		}
+	}
+	
+	static int stripe(Address address){
+		
+		return (address.hashCode() & Integer.MAX_VALUE) % STAMP_STRIPES;
+	}
+	
+	/**
+	 * Invalidate every stripe (the whole cache or a whole table changed); caller holds the lock.
+	 */
+	void stampAll(){
+		
+		for (int i = 0; i < STAMP_STRIPES; i++){
+			
+			this.stamps[i]++;
+		}
+	}
+	
+	Integer blockOf(Address address, String authorizations){
+		
+		Map<String, Integer> byAuthorizations = this.blocks.get(address);
+		
+		return (byAuthorizations == null)? null : byAuthorizations.get(authorizations);
+	}
+	
+	/**
+	 * Find a block to reuse: a free one, or the first the CLOCK hand finds unreferenced
+	 * (evicting its row).  Caller holds the lock.
+	 * @return Index of the block.
+	 */
+	int claim(){
+		
+		while (true){
+			
+			int index = this.hand;
+			
+			this.hand = (this.hand + 1) % this.owners.length;
+			
+			if (this.owners[index] == null){
+				
+				return index;
+			}
+			
+			if (this.referenced[index]){
+				
+				this.referenced[index] = false;
+			}
+			else {
+				
+				free(index);
+				
+				this.evictions.incrementAndGet();
+				
+				return index;
+			}
+		}
+	}
+	
+	void free(int index){
+		
+		Map<String, Integer> byAuthorizations = this.blocks.get(this.owners[index]);
+		
+		byAuthorizations.remove(this.ownerAuthorizations[index]);
+		
+		if (byAuthorizations.isEmpty()){
+			
+			this.blocks.remove(this.owners[index]);
+		}
+		
+		this.owners[index] = null;
+		this.ownerAuthorizations[index] = null;
+		this.referenced[index] = false;
+	}
+	
+	/**
+	 * Collect the cells of a scanned row, to cache them and still hand them out.
+	 * @param cells Iterator over the row's cells.
+	 * @return The cells, in order.
+	 */
+	static List<Entry<Key, Value>> collect(Iterator<Entry<Key, Value>> cells){
+		
+		List<Entry<Key, Value>> collected = new ArrayList<Entry<Key, Value>>();
+		
+		while (cells.hasNext()){
+			
+			collected.add(cells.next());
+		}
+		
+		return collected;
+	}
+	
+	/* ####### Invalidation #################################################################### */
+	
+	/**
+	 * Forget a row, in every authorization.
+	 * @param tableName Name of the table.
+	 * @param row Row
+	 */
+	public synchronized void invalidate(String tableName, String row){
+		
+		Address address = new Address(tableName, row);
+		
+		this.stamps[stripe(address)]++;
+		
+		Map<String, Integer> byAuthorizations = this.blocks.remove(address);
+		
+		if (byAuthorizations != null){
+			
+			for (Integer index : byAuthorizations.values()){
+				
+				this.owners[index] = null;
+				this.ownerAuthorizations[index] = null;
+				this.referenced[index] = false;
+			}
+			
+			this.invalidations.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Forget every row of the table.
+	 * @param tableName Name of the table.
+	 */
+	public synchronized void invalidate(String tableName){
+		
+		stampAll();
+		
+		for (int index = 0; index < this.owners.length; index++){
+			
+			Address owner = this.owners[index];
+			
+			if (owner != null && owner.tableName.equals(tableName)){
+				
+				free(index);
+				
+				this.invalidations.incrementAndGet();
+			}
+		}
+	}
+	
+	/**
+	 * Forget every row.
+	 */
+	public synchronized void clear(){
+		
+		stampAll();
+		
+		for (int index = 0; index < this.owners.length; index++){
+			
+			this.owners[index] = null;
+			this.ownerAuthorizations[index] = null;
+			this.referenced[index] = false;
+		}
+		
+		this.blocks.clear();
+	}
+	
+	/* ####### Metrics ######################################################################### */
+	
+	/**
+	 * Number of rows held (per authorizations).
+	 * @return Size
+	 */
+	public synchronized int size(){
+		
+		int size = 0;
+		
+		for (Address owner : this.owners){
+			
+			size += (owner == null)? 0 : 1;
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * Bytes of off-heap memory allocated.
+	 * @return Capacity
+	 */
+	public synchronized long capacity(){
+		
+		return (this.arena == null)? 0 : this.arena.capacity();
+	}
+	
+	public long hits(){
+		
+		return this.hits.get();
+	}
+	
+	public long misses(){
+		
+		return this.misses.get();
+	}
+	
+	public long evictions(){
+		
+		return this.evictions.get();
+	}
+	
+	public long invalidations(){
+		
+		return this.invalidations.get();
+	}
+	
+	/**
+	 * Number of rows not cached because they did not fit in a block.
+	 * @return Count
+	 */
+	public long oversized(){
+		
+		return this.oversized.get();
+	}
+	
+	@Override
+	public String toString() {
+		
+		return "RowCache [size=" + size() + ", capacity=" + capacity() + ", hits=" + hits()
+			+ ", misses=" + misses() + ", evictions=" + evictions() + ", invalidations=" + invalidations()
+			+ ", oversized=" + oversized() + "]";
+	}
+	
+	/* ####### Serialization ################################################################### */
+	
+	/**
+	 * Serialize a row: the row id once, then each cell's family, qualifier, visibility,
+	 * timestamp, delete flag and value.  Lengths are ints.
+	 * @param cells The row's cells.
+	 * @return Serialized row.
+	 */
+	static byte[] serialize(List<Entry<Key, Value>> cells){
+		
+		byte[] row = cells.isEmpty()? new byte[0] : bytes(cells.get(0).getKey().getRowData());
+		
+		int length = 4 + row.length + 4;
+		
+		for (Entry<Key, Value> cell : cells){
+			
+			Key key = cell.getKey();
+			
+			// Three lengths and fields, timestamp, delete flag, value length and value.
+			length += 12 + key.getColumnFamilyData().length() + key.getColumnQualifierData().length()
+				+ key.getColumnVisibilityData().length() + 8 + 1 + 4 + cell.getValue().getSize();
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		
+		buffer.putInt(row.length).put(row);
+		
+		buffer.putInt(cells.size());
+		
+		for (Entry<Key, Value> cell : cells){
+			
+			Key key = cell.getKey();
+			
+			put(buffer, bytes(key.getColumnFamilyData()));
+			put(buffer, bytes(key.getColumnQualifierData()));
+			put(buffer, bytes(key.getColumnVisibilityData()));
+			
+			buffer.putLong(key.getTimestamp());
+			buffer.put((byte) (key.isDeleted()? 1 : 0));
+			
+			put(buffer, cell.getValue().get());
+		}
+		
+		return buffer.array();
+	}
+	
+	static byte[] bytes(ByteSequence data){
+		
+		return CompactRow.Builder.bytes(data);
+	}
+	
+	static void put(ByteBuffer buffer, byte[] bytes){
+		
+		buffer.putInt(bytes.length).put(bytes);
+	}
+	
+	static byte[] get(ByteBuffer buffer){
+		
+		byte[] bytes = new byte[buffer.getInt()];
+		
+		buffer.get(bytes);
+		
+		return bytes;
+	}
+	
+	/**
+	 * Decodes the cells of a serialized row as they are iterated.
+	 */
+	static class BlockIterator implements Iterator<Entry<Key, Value>> {
+		
+		final ByteBuffer buffer;
+		
+		final byte[] row;
+		
+		int remaining;
+		
+		BlockIterator(byte[] block){
+			
+			this.buffer = ByteBuffer.wrap(block);
+			
+			this.row = get(this.buffer);
+			
+			this.remaining = this.buffer.getInt();
+		}
+		
+		@Override
+		public boolean hasNext() {
+			
+			return this.remaining > 0;
+		}
+		
+		@Override
+		public Entry<Key, Value> next() {
+			
+			if (this.remaining == 0){
+				
+				throw new NoSuchElementException();
+			}
+			
+			this.remaining--;
+			
+			byte[] family = get(this.buffer);
+			byte[] qualifier = get(this.buffer);
+			byte[] visibility = get(this.buffer);
+			
+			long timestamp = this.buffer.getLong();
+			
+			boolean deleted = this.buffer.get() == 1;
+			
+			Key key = new Key(this.row, family, qualifier, visibility, timestamp, deleted, false);
+			
+			return new SimpleImmutableEntry<Key, Value>(key, new Value(get(this.buffer)));
+		}
+		
+		@Override
+		public void remove() {
+			
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * Table and row id of a cached row.
+	 */
+	static final class Address {
+		
+		final String tableName;
+		final String row;
+		
+		Address(String tableName, String row){
+			
+			this.tableName = tableName;
+			this.row = row;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			
+			if (!(o instanceof Address)){
+				
+				return false;
+			}
+			
+			Address other = (Address) o;
+			
+			return this.tableName.equals(other.tableName) && this.row.equals(other.row);
+		}
+		
+		@Override
+		public int hashCode() {
+			
+			return 31 * this.tableName.hashCode() + this.row.hashCode();
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.berico.accumulo;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.accumulo.core.security.Authorizations;
+
+/**
+ * The row filters (RowBloomFilter) of every table on a connection, keyed by
+ * table and the authorizations each filter was built with.
+ *
+ * A lookup is ruled out when a filter of its table, built with a superset of
+ * the lookup's authorizations, does not hold the row.  Rows written through
+ * Cirrus are added to every filter of the table, including one still being
+ * built, which rules nothing out until it is complete.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class RowFilters {
+	
+	/**
+	 * Filters by table; at most one complete filter per set of authorizations.
+	 */
+	final ConcurrentMap<String, List<RowBloomFilter>> filters = new ConcurrentHashMap<String, List<RowBloomFilter>>();
+	
+	List<RowBloomFilter> of(String tableName){
+		
+		List<RowBloomFilter> filters = this.filters.get(tableName);
+		
+		if (filters == null){
+			
+			List<RowBloomFilter> created = new CopyOnWriteArrayList<RowBloomFilter>();
+			
+			filters = this.filters.putIfAbsent(tableName, created);
+			
+			if (filters == null){
+				
+				filters = created;
+			}
+		}
+		
+		return filters;
+	}
+	
+	/**
+	 * Use the filter for lookups on the table, replacing the filter built with the same
+	 * authorizations.
+	 * @param tableName Name of the table.
+	 * @param filter Filter of the table's rows.
+	 */
+	public void put(String tableName, RowBloomFilter filter){
+		
+		List<RowBloomFilter> filters = of(tableName);
+		
+		synchronized (filters) {
+			
+			for (RowBloomFilter existing : filters){
+				
+				if (existing != filter && !existing.building && existing.hasAuthorizations(filter.authorizations)){
+					
+					filters.remove(existing);
+				}
+			}
+			
+			filter.building = false;
+			
+			if (!filters.contains(filter)){
+				
+				filters.add(filter);
+			}
+		}
+	}
+	
+	/**
+	 * Add rows written to the table to a filter being built, without using it for lookups;
+	 * put(...) the filter once it is complete, or remove(...) it.
+	 * @param tableName Name of the table.
+	 * @param filter Filter being built.
+	 */
+	public void building(String tableName, RowBloomFilter filter){
+		
+		filter.building = true;
+		
+		of(tableName).add(filter);
+	}
+	
+	/**
+	 * Get the table's filter built with the authorizations.
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations the filter was built with.
+	 * @return The filter, or null if there is none.
+	 */
+	public RowBloomFilter get(String tableName, Authorizations authorizations){
+		
+		List<RowBloomFilter> filters = this.filters.get(tableName);
+		
+		if (filters != null){
+			
+			for (RowBloomFilter filter : filters){
+				
+				if (!filter.building && filter.hasAuthorizations(authorizations)){
+					
+					return filter;
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Stop using a filter of the table.
+	 * @param tableName Name of the table.
+	 * @param filter Filter
+	 */
+	public void remove(String tableName, RowBloomFilter filter){
+		
+		List<RowBloomFilter> filters = this.filters.get(tableName);
+		
+		if (filters != null){
+			
+			filters.remove(filter);
+		}
+	}
+	
+	/**
+	 * Stop using every filter of the table (e.g. it was deleted).
+	 * @param tableName Name of the table.
+	 */
+	public void remove(String tableName){
+		
+		this.filters.remove(tableName);
+	}
+	
+	/**
+	 * The table was renamed; its filters follow it.
+	 * @param oldName Old name of the table.
+	 * @param newName New name of the table.
+	 */
+	void renamed(String oldName, String newName){
+		
+		List<RowBloomFilter> filters = this.filters.remove(oldName);
+		
+		if (filters != null){
+			
+			this.filters.put(newName, filters);
+		}
+	}
+	
+	/**
+	 * Add a row written to the table to each of its filters.
+	 * @param tableName Name of the table.
+	 * @param row Row bytes.
+	 */
+	void add(String tableName, byte[] row){
+		
+		List<RowBloomFilter> filters = this.filters.get(tableName);
+		
+		if (filters != null){
+			
+			for (RowBloomFilter filter : filters){
+				
+				filter.add(row);
+			}
+		}
+	}
+	
+	/**
+	 * Is the row definitely absent for a lookup with the authorizations?
+	 * @param tableName Name of the table.
+	 * @param authorizations Authorizations of the lookup.
+	 * @param row Row
+	 * @return true if a complete filter covering the authorizations does not hold the row.
+	 */
+	public boolean isRuledOut(String tableName, Authorizations authorizations, String row){
+		
+		List<RowBloomFilter> filters = this.filters.get(tableName);
+		
+		if (filters == null){
+			
+			return false;
+		}
+		
+		for (RowBloomFilter filter : filters){
+			
+			if (!filter.building && filter.covers(authorizations) && !filter.mightContain(row)){
+				
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
@@ -122,7 +122,7 @@ public class RowMultiOps {
 	 */
 	public RowMultiOps delete(String family, String qualifier, String visibilityExpression){
 		
-		ColumnVisibility columnVisibility = new ColumnVisibility(visibilityExpression);
+		ColumnVisibility columnVisibility = VisibilityCache.shared().get(visibilityExpression);
 		
 		this.mutation.putDelete(family, qualifier, columnVisibility);
 		
@@ -139,7 +139,7 @@ public class RowMultiOps {
 	 */
 	public RowMultiOps delete(String family, String qualifier, String visibilityExpression, long timestamp){
 		
-		ColumnVisibility columnVisibility = new ColumnVisibility(visibilityExpression);
+		ColumnVisibility columnVisibility = VisibilityCache.shared().get(visibilityExpression);
 		
 		this.mutation.putDelete(family, qualifier, columnVisibility, timestamp);
 		
@@ -86,6 +86,16 @@ public class RowMutationOps {
 		
 	}
 	
+	/**
+	 * Set the column information, returning the ValueOps fluent interface (to set the value).
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @return ValueOps interface.
+	 */
+	public ValueMutationOps<RowMutationOps> column(CompiledColumn column) throws MutationsRejectedException {
+		
+		return new ValueMutationOps<RowMutationOps>(column.identifiers, this.mutation, this, new NoOpCompletionHandler());
+	}
+	
 	/* ############## CompletionHandler ################################################################ */
 	
 	/**
@@ -123,7 +133,7 @@ public class RowMutationOps {
 	 */
 	public RowMutationOps delete(String family, String qualifier, String visibilityExpression){
 		
-		ColumnVisibility columnVisibility = new ColumnVisibility(visibilityExpression);
+		ColumnVisibility columnVisibility = VisibilityCache.shared().get(visibilityExpression);
 		
 		this.mutation.putDelete(family, qualifier, columnVisibility);
 		
@@ -140,7 +150,7 @@ public class RowMutationOps {
 	 */
 	public RowMutationOps delete(String family, String qualifier, String visibilityExpression, long timestamp){
 		
-		ColumnVisibility columnVisibility = new ColumnVisibility(visibilityExpression);
+		ColumnVisibility columnVisibility = VisibilityCache.shared().get(visibilityExpression);
 		
 		this.mutation.putDelete(family, qualifier, columnVisibility, timestamp);
 		
@@ -167,6 +177,28 @@ public class RowMutationOps {
 		return this.delete(columnIdentifiers.getColumnFamily(), columnIdentifiers.getColumnQualifier());
 	}
 	
+	/**
+	 * Delete a cell from the row.
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @return Returns the fluent interface.
+	 */
+	public RowMutationOps delete(CompiledColumn column){
+		
+		ColumnIdentifiers columnIdentifiers = column.identifiers;
+		
+		if (columnIdentifiers.hasVisibilityExpression()){
+			
+			this.mutation.putDelete(columnIdentifiers.columnFamilyText(), 
+				columnIdentifiers.columnQualifierText(), columnIdentifiers.columnVisibility());
+		}
+		else {
+			
+			this.mutation.putDelete(columnIdentifiers.columnFamilyText(), columnIdentifiers.columnQualifierText());
+		}
+		
+		return this;
+	}
+	
 	/**
 	 * Delete all column qualifiers in the specified column family for the row in scope.
 	 * @param columnFamily Column Family.
@@ -218,7 +250,7 @@ public class RowMutationOps {
 		// creating some handler interface to consolidate the loops.
 		if (visibility != null && timestamp != 0){
 			
-			ColumnVisibility cv = new ColumnVisibility(visibility);
+			ColumnVisibility cv = VisibilityCache.shared().get(visibility);
 			
 			for (String columnQualifier : columnQualifiers){
 				
@@ -227,7 +259,7 @@ public class RowMutationOps {
 		}
 		else if (visibility != null){
 			
-			ColumnVisibility cv = new ColumnVisibility(visibility);
+			ColumnVisibility cv = VisibilityCache.shared().get(visibility);
 			
 			for (String columnQualifier : columnQualifiers){
 				
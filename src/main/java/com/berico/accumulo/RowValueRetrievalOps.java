@@ -22,4 +22,22 @@ public class RowValueRetrievalOps {
 		return new CellValueRetrievalOpsIterator(this.parent, row);
 	}
 	
+	/**
+	 * Iterate the row's values as primitives.
+	 * @return Primitive iterator over the row's cells.
+	 */
+	public PrimitiveCellIterator values(){
+		
+		return new PrimitiveCellIterator(row);
+	}
+	
+	/**
+	 * Iterate the row's cells with a reusable cursor.
+	 * @return Cursor over the row's cells.
+	 */
+	public CellCursor cursor(){
+		
+		return new CellCursor(row);
+	}
+	
 }
\ No newline at end of file
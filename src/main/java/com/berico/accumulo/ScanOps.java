@@ -1,13 +1,42 @@
 package com.berico.accumulo;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.user.AgeOffFilter;
+import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.iterators.user.VersioningIterator;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.berico.accumulo.CellValueRetrievalOps.ValueHandler;
 
 /**
  * Fluent Interface for performing Scan operations in Accumulo.
@@ -16,16 +45,379 @@ import org.apache.hadoop.io.Text;
  */
 public class ScanOps extends FluentExtension {
 	
+	private static final Logger logger = LoggerFactory.getLogger(ScanOps.class);
+	
+	/**
+	 * Number of query threads used by scanMany() when none is specified.
+	 */
+	public static int DEFAULT_BATCH_SCAN_THREADS = 10;
+	
+	/**
+	 * Name and priority of the WholeRowIterator used by rows(range, true); it runs after
+	 * any other scan-time iterator.
+	 */
+	static final String WHOLE_ROW_ITERATOR = "cirrusWholeRow";
+	static final int WHOLE_ROW_PRIORITY = 1000;
+	
+	static final int FIRST_ITERATOR_PRIORITY = 30;
+	
+	/**
+	 * Properties of the scan-time VersioningIterator Accumulo attaches to new tables.
+	 */
+	static final String TABLE_SCAN_VERSIONING = "table.iterator.scan.vers";
+	static final String TABLE_SCAN_MAX_VERSIONS = "table.iterator.scan.vers.opt.maxVersions";
+	
 	Scanner scanner;
 	
+	/**
+	 * Table and authorizations the scanner was created with; needed to
+	 * create BatchScanners over the same data.
+	 */
+	String tableName = null;
+	Authorizations authorizations = null;
+	
+	/**
+	 * Columns and families fetched by the scanner (see columns(...) and families(...));
+	 * both empty when every column is fetched.
+	 */
+	List<ColumnIdentifiers> projectedColumns = new ArrayList<ColumnIdentifiers>();
+	List<Text> projectedFamilies = new ArrayList<Text>();
+	
+	/**
+	 * Scan-time iterators registered by filter(...), sum(...), versions(...), etc.
+	 */
+	List<IteratorSetting> scanIterators = new ArrayList<IteratorSetting>();
+	
+	/**
+	 * Priority of the next scan-time iterator; after the table's own iterators
+	 * (versioning runs at 20) and before the WholeRowIterator.
+	 */
+	int nextIteratorPriority = FIRST_ITERATOR_PRIORITY;
+	
 	public ScanOps(Cirrus cirrus, Scanner scanner) {
 		super(cirrus);
 		
 		this.scanner = scanner;
 	}
 	
-	public Iterator<Entry<Key, Value>> getRows(String start, String end){
+	public ScanOps(Cirrus cirrus, String tableName, Authorizations authorizations, Scanner scanner) {
+		this(cirrus, scanner);
+		
+		this.tableName = tableName;
+		this.authorizations = authorizations;
+	}
+	
+	/* ####### Projection ###################################################################### */
+	
+	/**
+	 * Fetch only these columns from the tablet servers, for this and every later scan,
+	 * batch scan, parallel scan and lookup started from this interface.  Calls add to
+	 * the projection.
+	 * @param columnExpressions Columns to fetch (family:qualifier).
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps columns(String... columnExpressions){
+		
+		for (String columnExpression : columnExpressions){
+			
+			ColumnIdentifiers columnIdentifiers = new ColumnIdentifiers(columnExpression);
+			
+			this.scanner.fetchColumn(columnIdentifiers.columnFamilyText(), columnIdentifiers.columnQualifierText());
+			
+			this.projectedColumns.add(columnIdentifiers);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Fetch only these column families from the tablet servers, for this and every later
+	 * scan, batch scan, parallel scan and lookup started from this interface.  Calls add
+	 * to the projection.
+	 * @param columnFamilies Column Families to fetch.
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps families(String... columnFamilies){
+		
+		for (String columnFamily : columnFamilies){
+			
+			Text family = new Text(columnFamily);
+			
+			this.scanner.fetchColumnFamily(family);
+			
+			this.projectedFamilies.add(family);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Clear the projection, fetching every column again.
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps allColumns(){
+		
+		this.projectedColumns.clear();
+		this.projectedFamilies.clear();
+		
+		this.scanner.clearColumns();
+		
+		return this;
+	}
+	
+	/**
+	 * Fetch the projected columns and families on another scanner over the table.
+	 * @param target Scanner or BatchScanner.
+	 */
+	void project(ScannerBase target){
+		
+		for (ColumnIdentifiers columnIdentifiers : this.projectedColumns){
+			
+			target.fetchColumn(columnIdentifiers.columnFamilyText(), columnIdentifiers.columnQualifierText());
+		}
+		
+		for (Text family : this.projectedFamilies){
+			
+			target.fetchColumnFamily(family);
+		}
+	}
+	
+	/**
+	 * Apply the projection and scan-time iterators to another scanner over the table.
+	 * @param target Scanner or BatchScanner.
+	 */
+	void configure(ScannerBase target){
+		
+		project(target);
+		
+		for (IteratorSetting setting : this.scanIterators){
+			
+			target.addScanIterator(setting);
+		}
+	}
+	
+	/**
+	 * Put the scanner's fetched columns back to the projection after a scan narrowed them.
+	 */
+	void restoreProjection(){
+		
+		this.scanner.clearColumns();
+		
+		project(this.scanner);
+	}
+	
+	/* ####### Server-Side Iterators ########################################################### */
+	
+	/**
+	 * Run an iterator on the tablet servers for this and every later scan started from
+	 * this interface, so cells are filtered or reduced before they cross the network.
+	 * @param setting Iterator, with its priority, name and options.
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps filter(IteratorSetting setting){
+		
+		this.scanner.addScanIterator(setting);
+		
+		this.scanIterators.add(setting);
+		
+		return this;
+	}
+	
+	/**
+	 * Keep only the cells matching the regular expressions (RegExFilter); a null
+	 * expression matches anything.
+	 * @param rowRegex Row
+	 * @param familyRegex Column Family
+	 * @param qualifierRegex Column Qualifier
+	 * @param valueRegex Value
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps filter(String rowRegex, String familyRegex, String qualifierRegex, String valueRegex){
+		
+		IteratorSetting setting = nextIterator("regex", RegExFilter.class);
+		
+		RegExFilter.setRegexs(setting, rowRegex, familyRegex, qualifierRegex, valueRegex, false);
+		
+		return filter(setting);
+	}
+	
+	/**
+	 * Sum the versions of each cell in the columns, on the tablet servers.  The values
+	 * must be longs written by this library (see LongSummingCombiner).
+	 * 
+	 * The sum runs after the table's own iterators, and the VersioningIterator Accumulo
+	 * attaches to new tables keeps only the latest version, so on such a table the "sum"
+	 * is just the latest value.  Remove the table's versioning iterator first
+	 * (TableOps.removeIterator("vers")), or attach the combiner to the table itself
+	 * (TableOps.attachIterator(...)) below priority 20; a warning is logged if the
+	 * table still keeps a single version.
+	 * @param columns Columns to sum: "family:qualifier", or "family:*" for every qualifier
+	 * in the family.
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps sum(String... columns){
+		
+		warnIfSingleVersion("sum");
+		
+		return combine(nextIterator("sum", LongSummingCombiner.class), columns);
+	}
+	
+	/**
+	 * Sum the versions of each cell in the columns with Accumulo's SummingCombiner, for
+	 * longs written in one of its encodings.  Like sum(String...), this needs the table's
+	 * versioning iterator removed or widened.
+	 * @param encoding Encoding of the values.
+	 * @param columns Columns to sum: "family:qualifier" or "family:*".
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps sum(LongCombiner.Type encoding, String... columns){
+		
+		warnIfSingleVersion("sum");
+		
+		IteratorSetting setting = nextIterator("sum", SummingCombiner.class);
+		
+		LongCombiner.setEncodingType(setting, encoding);
+		
+		return combine(setting, columns);
+	}
+	
+	/**
+	 * Warn if the table's scan-time VersioningIterator keeps one version, since a
+	 * scan-time combiner runs after it and would only see the latest version.
+	 * @param kind Name of the operation, for the warning.
+	 */
+	void warnIfSingleVersion(String kind){
+		
+		if (this.tableName == null){
+			
+			return;
+		}
+		
+		String versioning = null;
+		String maxVersions = null;
+		
+		try {
+			
+			for (Entry<String, String> property : this.cirrus.tableCache.properties(this.tableName)){
+				
+				if (property.getKey().equals(TABLE_SCAN_VERSIONING)){
+					
+					versioning = property.getValue();
+				}
+				else if (property.getKey().equals(TABLE_SCAN_MAX_VERSIONS)){
+					
+					maxVersions = property.getValue();
+				}
+			}
+			
+		} catch (AccumuloException e) {
+			
+			return;
+			
+		} catch (TableNotFoundException e) {
+			
+			// The scan itself reports the missing table.
+			return;
+		}
+		
+		if (versioning != null && (maxVersions == null || maxVersions.trim().equals("1"))){
+			
+			logger.warn("{} on {} only sees the latest version of each cell: the table's versioning iterator "
+				+ "keeps one version.  Remove it (TableOps.removeIterator(\"vers\")) or attach the combiner "
+				+ "to the table.", kind, this.tableName);
+		}
+	}
+	
+	ScanOps combine(IteratorSetting setting, String... columns){
+		
+		List<IteratorSetting.Column> combined = new ArrayList<IteratorSetting.Column>(columns.length);
+		
+		for (String column : columns){
+			
+			combined.add(combinerColumn(column));
+		}
+		
+		Combiner.setColumns(setting, combined);
+		
+		return filter(setting);
+	}
+	
+	/**
+	 * Parse a combiner column: "family:qualifier", or "family:*" (or "family") for the
+	 * whole family.
+	 * @param column Column
+	 * @return Combiner column.
+	 */
+	static IteratorSetting.Column combinerColumn(String column){
+		
+		int separator = column.indexOf(ColumnIdentifiers.SEPARATOR);
+		
+		if (separator < 0){
+			
+			return new IteratorSetting.Column(column);
+		}
+		
+		String family = column.substring(0, separator);
+		String qualifier = column.substring(separator + 1);
+		
+		return (qualifier.equals("*"))? 
+			new IteratorSetting.Column(family) : new IteratorSetting.Column(family, qualifier);
+	}
+	
+	/**
+	 * Return at most this many versions of each cell (VersioningIterator).  This cannot
+	 * return more versions than the table keeps (see TableOps.maxVersions(...)).
+	 * @param maxVersions Maximum number of versions.
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps versions(int maxVersions){
+		
+		IteratorSetting setting = nextIterator("versions", VersioningIterator.class);
+		
+		VersioningIterator.setMaxVersions(setting, maxVersions);
+		
+		return filter(setting);
+	}
 	
+	/**
+	 * Skip cells older than the time to live (AgeOffFilter).
+	 * @param timeToLive Maximum age of a cell.
+	 * @param unit Unit of the time to live.
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps ageOff(long timeToLive, TimeUnit unit){
+		
+		IteratorSetting setting = nextIterator("ageOff", AgeOffFilter.class);
+		
+		AgeOffFilter.setTTL(setting, unit.toMillis(timeToLive));
+		
+		return filter(setting);
+	}
+	
+	/**
+	 * Remove every scan-time iterator registered on this interface.
+	 * @return Returns the fluent interface.
+	 */
+	public ScanOps clearFilters(){
+		
+		this.scanIterators.clear();
+		
+		this.scanner.clearScanIterators();
+		
+		this.nextIteratorPriority = FIRST_ITERATOR_PRIORITY;
+		
+		return this;
+	}
+	
+	IteratorSetting nextIterator(String kind, Class<? extends SortedKeyValueIterator<Key, Value>> iteratorClass){
+		
+		int priority = this.nextIteratorPriority++;
+		
+		return new IteratorSetting(priority, "cirrus" + kind + priority, iteratorClass);
+	}
+	
+	public Iterator<Entry<Key, Value>> getRows(String start, String end){
+		
 		Range range = new Range(start,end);
 		
 		this.scanner.setRange(range);
@@ -33,6 +425,337 @@ public class ScanOps extends FluentExtension {
 		return this.scanner.iterator();
 	}
 	
+	/**
+	 * Iterate the values in the range as primitives (see PrimitiveCellIterator), avoiding
+	 * the boxed values of TypedIterator.
+	 * @param range Range to scan.
+	 * @return Primitive iterator over the range's cells.
+	 */
+	public PrimitiveCellIterator values(Range range){
+		
+		this.scanner.setRange(range);
+		
+		return new PrimitiveCellIterator(this.scanner.iterator());
+	}
+	
+	/**
+	 * Iterate the cells in the range with a reusable cursor (see CellCursor), rather
+	 * than a new key and entry object per cell.
+	 * @param range Range to scan.
+	 * @return Cursor over the range's cells.
+	 */
+	public CellCursor cursor(Range range){
+		
+		this.scanner.setRange(range);
+		
+		return new CellCursor(this.scanner.iterator());
+	}
+	
+	/* ####### Columnar Retrieval ############################################################## */
+	
+	/**
+	 * Decode every value in the range as a long.
+	 * @param range Range to scan.
+	 * @return The values and their row keys.
+	 */
+	public LongColumn longs(Range range){
+		
+		return longs(range, null, false);
+	}
+	
+	/**
+	 * Decode one column's values across the rows of the range as longs.
+	 * @param range Range to scan.
+	 * @param columnExpression Column to read (family:qualifier), or null for every cell.
+	 * @return The values and their row keys.
+	 */
+	public LongColumn longs(Range range, String columnExpression){
+		
+		return longs(range, columnExpression, false);
+	}
+	
+	/**
+	 * Decode one column's values across the rows of the range as longs.
+	 * @param range Range to scan.
+	 * @param columnExpression Column to read (family:qualifier), or null for every cell.
+	 * @param offHeap Store the result in direct buffers (for very large results).
+	 * @return The values and their row keys.
+	 */
+	public LongColumn longs(Range range, String columnExpression, boolean offHeap){
+		
+		LongColumn column = new LongColumn(offHeap);
+		
+		Iterator<Entry<Key, Value>> cells = columnar(range, columnExpression);
+		
+		try {
+			
+			while (cells.hasNext()){
+				
+				Entry<Key, Value> cell = cells.next();
+				
+				byte[] bytes = cell.getValue().get();
+				
+				column.add(cell.getKey().getRowData(), ConversionUtils.decodeLong(bytes, 0, bytes.length));
+			}
+		}
+		finally {
+			
+			restoreProjection();
+		}
+		
+		return column;
+	}
+	
+	/**
+	 * Decode every value in the range as a double.
+	 * @param range Range to scan.
+	 * @return The values and their row keys.
+	 */
+	public DoubleColumn doubles(Range range){
+		
+		return doubles(range, null, false);
+	}
+	
+	/**
+	 * Decode one column's values across the rows of the range as doubles.
+	 * @param range Range to scan.
+	 * @param columnExpression Column to read (family:qualifier), or null for every cell.
+	 * @return The values and their row keys.
+	 */
+	public DoubleColumn doubles(Range range, String columnExpression){
+		
+		return doubles(range, columnExpression, false);
+	}
+	
+	/**
+	 * Decode one column's values across the rows of the range as doubles.
+	 * @param range Range to scan.
+	 * @param columnExpression Column to read (family:qualifier), or null for every cell.
+	 * @param offHeap Store the result in direct buffers (for very large results).
+	 * @return The values and their row keys.
+	 */
+	public DoubleColumn doubles(Range range, String columnExpression, boolean offHeap){
+		
+		DoubleColumn column = new DoubleColumn(offHeap);
+		
+		Iterator<Entry<Key, Value>> cells = columnar(range, columnExpression);
+		
+		try {
+			
+			while (cells.hasNext()){
+				
+				Entry<Key, Value> cell = cells.next();
+				
+				byte[] bytes = cell.getValue().get();
+				
+				column.add(cell.getKey().getRowData(), ConversionUtils.decodeDouble(bytes, 0, bytes.length));
+			}
+		}
+		finally {
+			
+			restoreProjection();
+		}
+		
+		return column;
+	}
+	
+	/**
+	 * Point the scanner at the range, fetching only the column if one is given (in place
+	 * of the projection, which the caller restores).
+	 * @param range Range to scan.
+	 * @param columnExpression Column to read, or null for every cell.
+	 * @return Iterator over the cells.
+	 */
+	Iterator<Entry<Key, Value>> columnar(Range range, String columnExpression){
+		
+		this.scanner.setRange(range);
+		
+		if (columnExpression != null){
+			
+			ColumnIdentifiers columnIdentifiers = new ColumnIdentifiers(columnExpression);
+			
+			this.scanner.clearColumns();
+			
+			this.scanner.fetchColumn(columnIdentifiers.columnFamilyText(), columnIdentifiers.columnQualifierText());
+		}
+		
+		return this.scanner.iterator();
+	}
+	
+	/* ####### Parallel Retrieval ############################################################## */
+	
+	/**
+	 * Create a spliterator over the range, which can be split along tablet boundaries.
+	 * @param range Range to traverse.
+	 * @return Spliterator over the range's cells.
+	 * @throws TableNotFoundException
+	 */
+	public CellSpliterator spliterator(Range range) throws TableNotFoundException {
+		
+		requireTableName();
+		
+		return new CellSpliterator(this, range);
+	}
+	
+	/**
+	 * Scan the range one tablet per task on the executor, handing every cell to the
+	 * handler, and wait for all of the tablets to be scanned.  The handler is called from
+	 * many threads at once, and cells arrive in no particular order across tablets.
+	 * @param range Range to scan.
+	 * @param executor Runs the scans of the tablets.
+	 * @param handler Receives each cell; must be thread-safe.
+	 * @return Returns the fluent interface.
+	 * @throws TableNotFoundException
+	 * @throws InterruptedException
+	 */
+	public ScanOps parallelForEach(Range range, ExecutorService executor, 
+			final ValueHandler<Entry<Key, Value>> handler) throws TableNotFoundException, InterruptedException {
+		
+		List<CellSpliterator> pieces = new ArrayList<CellSpliterator>();
+		
+		LinkedList<CellSpliterator> splitting = new LinkedList<CellSpliterator>();
+		
+		splitting.add(spliterator(range));
+		
+		while (!splitting.isEmpty()){
+			
+			CellSpliterator piece = splitting.removeFirst();
+			
+			CellSpliterator prefix = piece.trySplit();
+			
+			if (prefix == null){
+				
+				pieces.add(piece);
+			}
+			else {
+				
+				splitting.add(prefix);
+				splitting.add(piece);
+			}
+		}
+		
+		List<Future<Void>> scans = new ArrayList<Future<Void>>(pieces.size());
+		
+		for (final CellSpliterator piece : pieces){
+			
+			scans.add(executor.submit(new Callable<Void>(){
+				@Override
+				public Void call() throws Exception {
+					
+					piece.forEachRemaining(handler);
+					
+					return null;
+				}
+			}));
+		}
+		
+		try {
+			
+			for (Future<Void> scan : scans){
+				
+				scan.get();
+			}
+		}
+		catch (ExecutionException e){
+			
+			for (Future<Void> scan : scans){
+				
+				scan.cancel(true);
+			}
+			
+			throw new RuntimeException("Parallel scan of " + this.tableName + " failed", e.getCause());
+		}
+		
+		return this;
+	}
+	
+	/* ####### Multi-Range Retrieval ########################################################### */
+	
+	/**
+	 * Scan many ranges in parallel across the tablet servers, using the default
+	 * number of query threads.
+	 * @param ranges Ranges to scan (see RangeBuilder and KeyBuilder).
+	 * @return Fluent interface for the batch scan.
+	 * @throws TableNotFoundException
+	 */
+	public BatchScanOps scanMany(Range... ranges) throws TableNotFoundException {
+		
+		return scanMany(Arrays.asList(ranges));
+	}
+	
+	/**
+	 * Scan many ranges in parallel across the tablet servers, using the default
+	 * number of query threads.
+	 * @param ranges Ranges to scan (see RangeBuilder and KeyBuilder).
+	 * @return Fluent interface for the batch scan.
+	 * @throws TableNotFoundException
+	 */
+	public BatchScanOps scanMany(Collection<Range> ranges) throws TableNotFoundException {
+		
+		return batchScan(DEFAULT_BATCH_SCAN_THREADS).ranges(ranges);
+	}
+	
+	/**
+	 * Start a batch scan over the same table and authorizations as this scan.  Results
+	 * come back in no particular order.
+	 * @param numberOfThreads Number of query threads the BatchScanner will use.
+	 * @return Fluent interface for the batch scan.
+	 * @throws TableNotFoundException
+	 */
+	public BatchScanOps batchScan(int numberOfThreads) throws TableNotFoundException {
+		
+		return new BatchScanOps(this, createBatchScanner(numberOfThreads));
+	}
+	
+	/**
+	 * Start a batched lookup of many cells.  Cells added to the lookup are fetched together
+	 * in one parallel pass when resolve() is called, rather than one scan per cell.
+	 * @return Fluent interface for building the lookup.
+	 */
+	public CellLookupOps lookup(){
+		
+		return lookup(DEFAULT_BATCH_SCAN_THREADS);
+	}
+	
+	/**
+	 * Start a batched lookup of many cells.  Cells added to the lookup are fetched together
+	 * in one parallel pass when resolve() is called, rather than one scan per cell.
+	 * @param numberOfThreads Number of query threads the BatchScanner will use.
+	 * @return Fluent interface for building the lookup.
+	 */
+	public CellLookupOps lookup(int numberOfThreads){
+		
+		return new CellLookupOps(this, numberOfThreads);
+	}
+	
+	/**
+	 * Create a BatchScanner over the same table, authorizations, projection and scan-time
+	 * iterators as this scan.
+	 * @param numberOfThreads Number of query threads.
+	 * @return A new BatchScanner; the caller is responsible for closing it.
+	 * @throws TableNotFoundException
+	 */
+	BatchScanner createBatchScanner(int numberOfThreads) throws TableNotFoundException {
+		
+		requireTableName();
+		
+		BatchScanner batchScanner = 
+			this.cirrus.connector.createBatchScanner(this.tableName, this.authorizations, numberOfThreads);
+		
+		configure(batchScanner);
+		
+		return batchScanner;
+	}
+	
+	void requireTableName(){
+		
+		if (this.tableName == null){
+			
+			throw new IllegalStateException(
+				"Batch and parallel scans require a ScanOps created with a table name and authorizations.");
+		}
+	}
+	
 	/* ####### Cell Retrieval ############################################################## */
 	
 	/**
@@ -91,6 +814,30 @@ public class ScanOps extends FluentExtension {
 			columnIdentifiers.getColumnQualifier(), columnIdentifiers.getVisibilityExpression(), timestamp);
 	}
 	
+	/**
+	 * Retrieve the value of a cell.
+	 * @param rowId Row
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @return Fluent interface for accessing the cell's value.
+	 */
+	public CellValueRetrievalOps cell(String rowId, CompiledColumn column){
+		
+		return cell(rowId, column, 0);
+	}
+	
+	/**
+	 * Retrieve the value of a cell.
+	 * @param rowId Row
+	 * @param column Compiled column expression (see ColumnIdentifiers.compile(...)).
+	 * @param timestamp Specific time of the cell's mutation.
+	 * @return Fluent interface for accessing the cell's value.
+	 */
+	public CellValueRetrievalOps cell(String rowId, CompiledColumn column, long timestamp){
+		
+		return cell(rowId, column.getColumnFamily(), 
+			column.getColumnQualifier(), column.getVisibilityExpression(), timestamp);
+	}
+	
 	/**
 	 * Retrieve the value of a cell.
 	 * @param rowId Row
@@ -104,6 +851,27 @@ public class ScanOps extends FluentExtension {
 			String rowId, String columnFamily, String columnQualifier, 
 			String columnVisibility, long timestamp){
 		
+		if (isRuledOut(rowId)){
+			
+			return new CellValueRetrievalOps(this, null);
+		}
+		
+		boolean cacheable = isCacheable(timestamp) && this.cirrus.cellCache.isEnabled();
+		
+		if (cacheable){
+			
+			Entry<Key, Value> cached = this.cirrus.cellCache.get(
+				this.tableName, this.authorizations, rowId, columnFamily, columnQualifier, columnVisibility);
+			
+			if (cached != null){
+				
+				return new CellValueRetrievalOps(this, cached);
+			}
+		}
+		
+		// Taken before the scan, so a write flushed while scanning keeps the cell out of the cache.
+		long stamp = cacheable? this.cirrus.cellCache.stamp(this.tableName, rowId, columnFamily, columnQualifier) : 0;
+		
 		Range range = getExactRange(rowId, columnFamily, columnQualifier, columnVisibility, timestamp);
 		
 		this.scanner.setRange(range);
@@ -118,9 +886,44 @@ public class ScanOps extends FluentExtension {
 			cell = iterator.next();
 		}
 		
+		if (cacheable && cell != null){
+			
+			this.cirrus.cellCache.put(this.tableName, this.authorizations, 
+				rowId, columnFamily, columnQualifier, columnVisibility, cell, stamp);
+		}
+		
 		return new CellValueRetrievalOps(this, cell);
 	}
 	
+	/**
+	 * Does one of the table's row filters rule the row out for this scan's authorizations
+	 * (see TableOps.rowFilter(...))?
+	 * @param rowId Row
+	 * @return true if the row is definitely absent.
+	 */
+	boolean isRuledOut(String rowId){
+		
+		if (this.tableName == null || this.authorizations == null || this.cirrus == null){
+			
+			return false;
+		}
+		
+		return this.cirrus.rowFilters.isRuledOut(this.tableName, this.authorizations, rowId);
+	}
+	
+	/**
+	 * Can a lookup go through the client-side caches?  Only lookups of the latest version,
+	 * on a scan with a table name and no projection or scan-time iterators, are cached.
+	 * @param timestamp Timestamp of the lookup (0 for the latest).
+	 * @return true if it can.
+	 */
+	boolean isCacheable(long timestamp){
+		
+		return timestamp == 0 && this.tableName != null && this.cirrus != null
+			&& this.projectedColumns.isEmpty() && this.projectedFamilies.isEmpty() 
+			&& this.scanIterators.isEmpty();
+	}
+	
 	/* ####### Column Family Retrieval ########################################################## */
 	
 	public RowValueRetrievalOps family(String rowId, String columnFamily){
@@ -134,13 +937,79 @@ public class ScanOps extends FluentExtension {
 	
 	/* ####### Row Retrieval #################################################################### */
 	
+	/**
+	 * Scan the range, grouping the cells of each row into a CompactRow.
+	 * @param range Range to scan.
+	 * @return Iterator over the rows in the range.
+	 */
+	public CompactRowIterator rows(Range range){
+		
+		return rows(range, false);
+	}
+	
+	/**
+	 * Scan the range, grouping the cells of each row into a CompactRow.
+	 * @param range Range to scan.
+	 * @param serverSide Group the rows on the tablet servers (WholeRowIterator), sending
+	 * each row as one entry.
+	 * @return Iterator over the rows in the range.
+	 */
+	public CompactRowIterator rows(Range range, boolean serverSide){
+		
+		this.scanner.setRange(range);
+		
+		if (!serverSide){
+			
+			return new CompactRowIterator(this.scanner.iterator(), false);
+		}
+		
+		this.scanner.addScanIterator(
+			new IteratorSetting(WHOLE_ROW_PRIORITY, WHOLE_ROW_ITERATOR, WholeRowIterator.class));
+		
+		try {
+			
+			// The iterator takes a copy of the scanner's options, so the setting can go.
+			return new CompactRowIterator(this.scanner.iterator(), true);
+		}
+		finally {
+			
+			this.scanner.removeScanIterator(WHOLE_ROW_ITERATOR);
+		}
+	}
+	
 	public RowValueRetrievalOps row(String rowId){
 		
 		Key k = new KeyBuilder().row(rowId).build();
 		
 		Range r = RangeBuilder.exact(k);
 		
-		return retrieveRow(r);
+		if (isRuledOut(rowId)){
+			
+			return new RowValueRetrievalOps(this, Collections.<Entry<Key, Value>>emptyList().iterator());
+		}
+		
+		if (!isCacheable(0) || !this.cirrus.rowCache.isEnabled()){
+			
+			return retrieveRow(r);
+		}
+		
+		Iterator<Entry<Key, Value>> cached = this.cirrus.rowCache.get(this.tableName, this.authorizations, rowId);
+		
+		if (cached != null){
+			
+			return new RowValueRetrievalOps(this, cached);
+		}
+		
+		// Taken before the scan, so a write flushed while scanning keeps the row out of the cache.
+		long stamp = this.cirrus.rowCache.stamp(this.tableName, rowId);
+		
+		this.scanner.setRange(r);
+		
+		List<Entry<Key, Value>> cells = RowCache.collect(this.scanner.iterator());
+		
+		this.cirrus.rowCache.put(this.tableName, this.authorizations, rowId, cells, stamp);
+		
+		return new RowValueRetrievalOps(this, cells.iterator());
 	}
 	
 	RowValueRetrievalOps retrieveRow(Range range){
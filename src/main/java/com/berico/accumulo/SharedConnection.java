@@ -0,0 +1,116 @@
+package com.berico.accumulo;
+
+import java.security.MessageDigest;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.ZooKeeperInstance;
+import org.apache.accumulo.core.client.admin.TableOperations;
+
+/**
+ * An authenticated connection to an Accumulo instance, shared by every
+ * Cirrus created with the same instance, ZooKeepers and user
+ * (see ConnectionRegistry).
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class SharedConnection {
+	
+	ZooKeeperInstance instance;
+	
+	Connector connector;
+	
+	/**
+	 * Connector.tableOperations() builds a new object on each call,
+	 * so it is created once here.
+	 */
+	TableOperations tableOperations;
+	
+	/**
+	 * Table metadata shared by every Cirrus on this connection.
+	 */
+	TableMetadataCache tableCache;
+	
+	/**
+	 * BatchWriters shared by every Cirrus on this connection.
+	 */
+	WriterPool writerPool;
+	
+	/**
+	 * Cells read by ScanOps.cell(...), shared by every Cirrus on this connection
+	 * (disabled until sized).
+	 */
+	CellCache cellCache = new CellCache();
+	
+	/**
+	 * Rows read by ScanOps.row(...), shared by every Cirrus on this connection
+	 * (disabled until sized).
+	 */
+	RowCache rowCache = new RowCache();
+	
+	/**
+	 * Bloom filters of row ids, by table and authorizations, shared by every Cirrus on this connection.
+	 */
+	RowFilters rowFilters = new RowFilters();
+	
+	/**
+	 * Digest of the password the Connector authenticated with.
+	 */
+	byte[] passwordDigest;
+	
+	SharedConnection(ZooKeeperInstance instance, Connector connector, byte[] passwordDigest){
+		
+		this.instance = instance;
+		this.connector = connector;
+		this.tableOperations = connector.tableOperations();
+		this.tableCache = new TableMetadataCache(this.tableOperations);
+		this.writerPool = new WriterPool(connector);
+		this.passwordDigest = passwordDigest;
+	}
+	
+	/**
+	 * Flush and close every BatchWriter on this connection, including those still leased
+	 * by live chains.  Call this when the application is done writing.
+	 */
+	public void close(){
+		
+		this.writerPool.close();
+	}
+	
+	/**
+	 * Did the connection authenticate with the password of the supplied digest?
+	 * @param passwordDigest Digest of a password.
+	 * @return true if the digests match.
+	 */
+	boolean authenticatedWith(byte[] passwordDigest){
+		
+		return MessageDigest.isEqual(this.passwordDigest, passwordDigest);
+	}
+	
+	public ZooKeeperInstance getInstance() {
+		return instance;
+	}
+	
+	public Connector getConnector() {
+		return connector;
+	}
+	
+	public TableOperations getTableOperations() {
+		return tableOperations;
+	}
+	
+	public TableMetadataCache getTableCache() {
+		return tableCache;
+	}
+	
+	public WriterPool getWriterPool() {
+		return writerPool;
+	}
+	
+	public CellCache getCellCache() {
+		return cellCache;
+	}
+	
+	public RowCache getRowCache() {
+		return rowCache;
+	}
+}
@@ -3,6 +3,7 @@ package com.berico.accumulo;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
 
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
@@ -14,29 +15,100 @@ public class SimpleKey extends Key {
 
 	Key decoratedKey;
 	
+	/**
+	 * Strings decoded from the key, on first use.
+	 */
+	String rowKey = null;
+	String family = null;
+	String qualifier = null;
+	String visibility = null;
+	
 	public SimpleKey(Key decoratedKey){
 		
 		this.decoratedKey = decoratedKey;
 	}
 	
+	/**
+	 * Point this instance at another key, so one SimpleKey can serve every cell
+	 * of a streaming loop (see CellCursor).
+	 * @param key Key to decorate.
+	 * @return Returns this instance.
+	 */
+	SimpleKey repoint(Key key){
+		
+		this.decoratedKey = key;
+		
+		forget();
+		
+		return this;
+	}
+	
+	/**
+	 * Drop the decoded Strings; the decorated key changed.
+	 */
+	void forget(){
+		
+		this.rowKey = null;
+		this.family = null;
+		this.qualifier = null;
+		this.visibility = null;
+	}
+	
 	public String rowKey(){
 		
-		return this.decoratedKey.getRow().toString();
+		if (this.rowKey == null){
+			
+			this.rowKey = decode(this.decoratedKey.getRowData());
+		}
+		
+		return this.rowKey;
 	}
 	
 	public String family(){
 		
-		return this.decoratedKey.getColumnFamily().toString();
+		if (this.family == null){
+			
+			this.family = decode(this.decoratedKey.getColumnFamilyData());
+		}
+		
+		return this.family;
 	}
 	
 	public String qualifier(){
 		
-		return this.decoratedKey.getColumnQualifier().toString();
+		if (this.qualifier == null){
+			
+			this.qualifier = decode(this.decoratedKey.getColumnQualifierData());
+		}
+		
+		return this.qualifier;
 	}
 	
 	public String visibility(){
 		
-		return this.decoratedKey.getColumnVisibility().toString();
+		if (this.visibility == null){
+			
+			this.visibility = decode(this.decoratedKey.getColumnVisibilityData());
+		}
+		
+		return this.visibility;
+	}
+	
+	/**
+	 * Decode the bytes in place (as Text.toString() would), without copying them into a Text first.
+	 * @param data Bytes of a key field.
+	 * @return Decoded String.
+	 */
+	static String decode(ByteSequence data){
+		
+		try {
+			
+			return Text.decode(data.getBackingArray(), data.offset(), data.length());
+			
+		} catch (CharacterCodingException e) {
+			
+			throw new IllegalStateException(e);
+		}
 	}
 	
 	@Override
@@ -187,12 +259,16 @@ public class SimpleKey extends Key {
 	public void readFields(DataInput in) throws IOException {
 		
 		this.decoratedKey.readFields(in);
+		
+		forget();
 	}
 
 	@Override
 	public void set(Key k) {
 		
 		this.decoratedKey.set(k);
+		
+		forget();
 	}
 
 	@Override
@@ -0,0 +1,278 @@
+package com.berico.accumulo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+/**
+ * The external sort behind BulkLoadOps: cells are sorted in memory and spilled
+ * to local RFiles (sorted runs) whenever the buffer passes the run size, then
+ * merged into one RFile per tablet.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+class SortedRuns {
+	
+	static final String RFILE_EXTENSION = ".rf";
+	
+	Configuration conf = new Configuration();
+	
+	AccumuloConfiguration accumuloConf = AccumuloConfiguration.getDefaultConfiguration();
+	
+	/**
+	 * Local directory holding the runs.
+	 */
+	File directory;
+	
+	/**
+	 * Estimated bytes of cells sorted in memory before a run is spilled.
+	 */
+	long runSize;
+	
+	TreeMap<Key, Value> buffer = new TreeMap<Key, Value>();
+	
+	long bufferedBytes = 0;
+	
+	List<String> runs = new ArrayList<String>();
+	
+	/**
+	 * Initialize the runs.
+	 * @param directory Local directory the runs are written to.
+	 * @param runSize Estimated bytes of cells sorted in memory before a run is spilled.
+	 */
+	SortedRuns(File directory, long runSize){
+		
+		this.directory = directory;
+		this.runSize = runSize;
+	}
+	
+	/**
+	 * Buffer a cell, spilling a run if the buffer is full.  A cell replaces an earlier one
+	 * with the same key.
+	 * @param key Key of the cell.
+	 * @param value Value of the cell.
+	 * @param bytes Estimated bytes the cell takes in memory.
+	 * @throws IOException
+	 */
+	void add(Key key, Value value, long bytes) throws IOException {
+		
+		this.buffer.put(key, value);
+		
+		this.bufferedBytes += bytes;
+		
+		if (this.bufferedBytes >= this.runSize){
+			
+			spill();
+		}
+	}
+	
+	/**
+	 * Write the buffered cells, in order, to a new run.
+	 * @throws IOException
+	 */
+	void spill() throws IOException {
+		
+		if (this.buffer.isEmpty()){
+			
+			return;
+		}
+		
+		String run = new File(this.directory, "run-" + this.runs.size() + RFILE_EXTENSION).getPath();
+		
+		FileSKVWriter writer = openWriter(run, FileSystem.getLocal(this.conf));
+		
+		try {
+			
+			for (Entry<Key, Value> cell : this.buffer.entrySet()){
+				
+				writer.append(cell.getKey(), cell.getValue());
+			}
+		}
+		finally {
+			
+			writer.close();
+		}
+		
+		this.runs.add(run);
+		
+		this.buffer.clear();
+		
+		this.bufferedBytes = 0;
+	}
+	
+	FileSKVWriter openWriter(String file, FileSystem fs) throws IOException {
+		
+		FileSKVWriter writer = FileOperations.getInstance().openWriter(file, fs, this.conf, this.accumuloConf);
+		
+		writer.startDefaultLocalityGroup();
+		
+		return writer;
+	}
+	
+	/**
+	 * K-way merge of the runs, starting a new RFile at each tablet boundary.  Of the cells
+	 * with the same key, only the one added last is written.
+	 * @param splits The table's split points, in order (the last row of each tablet).
+	 * @param output Directory the RFiles are written to (one per tablet holding cells).
+	 * @return Number of RFiles written.
+	 * @throws IOException
+	 */
+	int merge(List<Text> splits, Path output) throws IOException {
+		
+		FileSystem localFs = FileSystem.getLocal(this.conf);
+		
+		FileSystem outputFs = output.getFileSystem(this.conf);
+		
+		PriorityQueue<Run> runs = new PriorityQueue<Run>(
+			Math.max(1, this.runs.size()), new Comparator<Run>(){
+				@Override
+				public int compare(Run a, Run b) {
+					
+					int compared = a.reader.getTopKey().compareTo(b.reader.getTopKey());
+					
+					// Of equal keys, the later run (the later add) comes first.
+					return (compared != 0)? compared : b.index - a.index;
+				}
+			});
+		
+		FileSKVWriter writer = null;
+		
+		int tablet = 0;
+		int files = 0;
+		
+		try {
+			
+			for (int i = 0; i < this.runs.size(); i++){
+				
+				FileSKVIterator reader = FileOperations.getInstance().openReader(this.runs.get(i), true, localFs, this.conf, this.accumuloConf);
+				
+				if (reader.hasTop()){
+					
+					runs.add(new Run(reader, i));
+				}
+				else {
+					
+					reader.close();
+				}
+			}
+			
+			Key last = null;
+			
+			while (!runs.isEmpty()){
+				
+				Run run = runs.poll();
+				
+				Key key = run.reader.getTopKey();
+				
+				if (last == null || !key.equals(last)){
+					
+					// Rows after a split point belong to a later tablet.
+					while (tablet < splits.size() && key.compareRow(splits.get(tablet)) > 0){
+						
+						tablet++;
+						
+						if (writer != null){
+							
+							writer.close();
+							
+							writer = null;
+						}
+					}
+					
+					if (writer == null){
+						
+						writer = openWriter(new Path(output,
+							String.format("tablet-%05d%s", tablet, RFILE_EXTENSION)).toString(), outputFs);
+						
+						files++;
+					}
+					
+					writer.append(key, run.reader.getTopValue());
+					
+					// The reader reuses its key.
+					last = new Key(key);
+				}
+				
+				run.reader.next();
+				
+				if (run.reader.hasTop()){
+					
+					runs.add(run);
+				}
+				else {
+					
+					run.reader.close();
+				}
+			}
+		}
+		finally {
+			
+			if (writer != null){
+				
+				writer.close();
+			}
+			
+			for (Run run : runs){
+				
+				run.reader.close();
+			}
+		}
+		
+		return files;
+	}
+	
+	/**
+	 * Delete the runs (and their checksum files) and their directory.
+	 * @throws IOException
+	 */
+	void delete() throws IOException {
+		
+		this.runs.clear();
+		
+		this.buffer.clear();
+		
+		this.bufferedBytes = 0;
+		
+		FileSystem.getLocal(this.conf).delete(new Path(this.directory.toURI()), true);
+	}
+	
+	/**
+	 * Number of runs spilled so far.
+	 * @return Run count.
+	 */
+	int size(){
+		
+		return this.runs.size();
+	}
+	
+	/**
+	 * A reader of a run, and the order the run was spilled in.
+	 */
+	static class Run {
+		
+		FileSKVIterator reader;
+		int index;
+		
+		Run(FileSKVIterator reader, int index){
+			
+			this.reader = reader;
+			this.index = index;
+		}
+	}
+}
@@ -34,11 +34,21 @@ public abstract class TableFluentExtension extends FluentExtension {
 		
 		this.tableName = tableName;
 		
-		this.table = cirrus.connector.tableOperations();
+		this.table = cirrus.tableOperations;
 		
-		if (!this.table.exists(tableName)){
+		// Existence is cached, since this runs for every table(...) in a fluent chain.
+		if (!cirrus.tableCache.exists(tableName)){
 			
-			this.table.create(this.tableName);
+			try {
+				
+				this.table.create(this.tableName);
+				
+			} catch (TableExistsException e) {
+				
+				// Created by someone else since we looked; that's what we wanted anyway.
+			}
+			
+			cirrus.tableCache.created(this.tableName);
 		}
 	}
 
@@ -0,0 +1,234 @@
+package com.berico.accumulo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+
+/**
+ * Caches table metadata (existence, table ID and properties) so that building
+ * a TableOps or MutationOps does not cost a ZooKeeper/metadata lookup each time.
+ *
+ * Entries expire after a TTL, and are invalidated when a table is created,
+ * deleted, renamed or has a property set through Cirrus.  Only existing
+ * tables are cached; a table that is not in the cache is always looked up.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class TableMetadataCache {
+	
+	/**
+	 * Default milliseconds an entry is trusted before it is looked up again.
+	 */
+	public static long DEFAULT_TTL = 30000L;
+	
+	TableOperations tableOperations;
+	
+	long ttl;
+	
+	ConcurrentMap<String, Expiring<Boolean>> existence = new ConcurrentHashMap<String, Expiring<Boolean>>();
+	
+	ConcurrentMap<String, Expiring<String>> tableIds = new ConcurrentHashMap<String, Expiring<String>>();
+	
+	ConcurrentMap<String, Expiring<List<Entry<String, String>>>> properties =
+		new ConcurrentHashMap<String, Expiring<List<Entry<String, String>>>>();
+	
+	/**
+	 * Initialize the cache with the default TTL.
+	 * @param tableOperations Used to load metadata that is not cached.
+	 */
+	public TableMetadataCache(TableOperations tableOperations){
+		
+		this(tableOperations, DEFAULT_TTL);
+	}
+	
+	/**
+	 * Initialize the cache.
+	 * @param tableOperations Used to load metadata that is not cached.
+	 * @param ttl Milliseconds an entry is trusted before it is looked up again.
+	 */
+	public TableMetadataCache(TableOperations tableOperations, long ttl){
+		
+		this.tableOperations = tableOperations;
+		this.ttl = ttl;
+	}
+	
+	/* ####### Lookups ######################################################################### */
+	
+	/**
+	 * Does the table exist?
+	 * @param tableName Name of the table.
+	 * @return True if it does exist.
+	 */
+	public boolean exists(String tableName){
+		
+		Expiring<Boolean> cached = this.existence.get(tableName);
+		
+		if (cached != null && !cached.isExpired()){
+			
+			return true;
+		}
+		
+		boolean exists = this.tableOperations.exists(tableName);
+		
+		if (exists){
+			
+			this.existence.put(tableName, new Expiring<Boolean>(Boolean.TRUE, this.ttl));
+		}
+		else {
+			
+			invalidate(tableName);
+		}
+		
+		return exists;
+	}
+	
+	/**
+	 * Get the internal ID of the table.
+	 * @param tableName Name of the table.
+	 * @return The table's ID.
+	 * @throws TableNotFoundException
+	 */
+	public String tableId(String tableName) throws TableNotFoundException {
+		
+		Expiring<String> cached = this.tableIds.get(tableName);
+		
+		if (cached != null && !cached.isExpired()){
+			
+			return cached.value;
+		}
+		
+		String tableId = this.tableOperations.tableIdMap().get(tableName);
+		
+		if (tableId == null){
+			
+			invalidate(tableName);
+			
+			throw new TableNotFoundException(null, tableName, null);
+		}
+		
+		this.tableIds.put(tableName, new Expiring<String>(tableId, this.ttl));
+		
+		return tableId;
+	}
+	
+	/**
+	 * Get the properties of the table.
+	 * @param tableName Name of the table.
+	 * @return An iterable of String key, String value (table properties).
+	 * @throws AccumuloException
+	 * @throws TableNotFoundException
+	 */
+	public Iterable<Entry<String, String>> properties(String tableName) throws AccumuloException, TableNotFoundException {
+		
+		Expiring<List<Entry<String, String>>> cached = this.properties.get(tableName);
+		
+		if (cached != null && !cached.isExpired()){
+			
+			return cached.value;
+		}
+		
+		List<Entry<String, String>> tableProperties = new ArrayList<Entry<String, String>>();
+		
+		for (Entry<String, String> property : this.tableOperations.getProperties(tableName)){
+			
+			tableProperties.add(property);
+		}
+		
+		tableProperties = Collections.unmodifiableList(tableProperties);
+		
+		this.properties.put(tableName, new Expiring<List<Entry<String, String>>>(tableProperties, this.ttl));
+		
+		return tableProperties;
+	}
+	
+	/* ####### Invalidation #################################################################### */
+	
+	/**
+	 * Record that the table was created.
+	 * @param tableName Name of the table.
+	 */
+	public void created(String tableName){
+		
+		invalidate(tableName);
+		
+		this.existence.put(tableName, new Expiring<Boolean>(Boolean.TRUE, this.ttl));
+	}
+	
+	/**
+	 * Record that the table was deleted.
+	 * @param tableName Name of the table.
+	 */
+	public void deleted(String tableName){
+		
+		invalidate(tableName);
+	}
+	
+	/**
+	 * Record that the table was renamed.
+	 * @param oldName Previous name of the table.
+	 * @param newName New name of the table.
+	 */
+	public void renamed(String oldName, String newName){
+		
+		invalidate(oldName);
+		
+		created(newName);
+	}
+	
+	/**
+	 * Record that the table's properties changed.
+	 * @param tableName Name of the table.
+	 */
+	public void propertiesChanged(String tableName){
+		
+		this.properties.remove(tableName);
+	}
+	
+	/**
+	 * Forget everything cached about the table.
+	 * @param tableName Name of the table.
+	 */
+	public void invalidate(String tableName){
+		
+		this.existence.remove(tableName);
+		this.tableIds.remove(tableName);
+		this.properties.remove(tableName);
+	}
+	
+	/**
+	 * Forget everything cached about every table.
+	 */
+	public void clear(){
+		
+		this.existence.clear();
+		this.tableIds.clear();
+		this.properties.clear();
+	}
+	
+	/**
+	 * A cached value and the time it stops being trusted.
+	 */
+	static class Expiring<T> {
+		
+		T value;
+		long expiresAt;
+		
+		Expiring(T value, long ttl){
+			
+			this.value = value;
+			this.expiresAt = System.currentTimeMillis() + ttl;
+		}
+		
+		boolean isExpired(){
+			
+			return System.currentTimeMillis() >= this.expiresAt;
+		}
+	}
+}
@@ -1,12 +1,20 @@
 package com.berico.accumulo;
 
+import java.io.IOException;
+import java.util.EnumSet;
 import java.util.Map.Entry;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.FirstEntryInRowIterator;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
 
@@ -18,6 +26,8 @@ public class TableOps extends TableFluentExtension {
 
 	private static final String TABLE_MAX_VERSIONS = "table.iterator.majc.vers.opt.maxVersions";
 	
+	private static final String TABLE_BLOOM_ENABLED = "table.bloom.enabled";
+	
 	/**
 	 * Instantiate the class passing the name of the target table and the base
 	 * fluent interface.
@@ -45,6 +55,14 @@ public class TableOps extends TableFluentExtension {
 		
 		this.table.delete(this.tableName);
 		
+		this.cirrus.tableCache.deleted(this.tableName);
+		
+		this.cirrus.rowFilters.remove(this.tableName);
+		
+		this.cirrus.writerPool.evict(this.tableName);
+		
+		this.cirrus.tableChanged(this.tableName);
+		
 		return this;
 	}
 	
@@ -65,6 +83,8 @@ public class TableOps extends TableFluentExtension {
 		
 		this.table.deleteRows(this.tableName, start, end);
 		
+		this.cirrus.tableChanged(this.tableName);
+		
 		return this;
 	}
 	
@@ -81,6 +101,17 @@ public class TableOps extends TableFluentExtension {
 		
 		this.table.rename(this.tableName, newName);
 		
+		this.cirrus.tableCache.renamed(this.tableName, newName);
+		
+		this.cirrus.tableChanged(this.tableName);
+		this.cirrus.tableChanged(newName);
+		
+		this.cirrus.rowFilters.renamed(this.tableName, newName);
+		
+		// Writers resolved the old name to the table's id; neither name may reuse them.
+		this.cirrus.writerPool.evict(this.tableName);
+		this.cirrus.writerPool.evict(newName);
+		
 		this.tableName = newName;
 		
 		return this;
@@ -92,7 +123,7 @@ public class TableOps extends TableFluentExtension {
 	 */
 	public boolean exists(){
 		
-		return this.table.exists(this.tableName);
+		return this.cirrus.tableCache.exists(this.tableName);
 	}
 	
 	/**
@@ -108,11 +139,112 @@ public class TableOps extends TableFluentExtension {
 		return new MutationOps(this.tableName, this.cirrus);
 	}
 	
+	/**
+	 * Expand into the Mutation interface, using a writer configured for this chain only.
+	 * @param writerConfig Writer settings (e.g. WriterConfig.LOW_LATENCY).
+	 * @return the Mutation Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException 
+	 */
+	public MutationOps mutate(WriterConfig writerConfig) throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException{
+		
+		return new MutationOps(this.tableName, this.cirrus, writerConfig);
+	}
+	
+	/**
+	 * Expand into the asynchronous Mutation interface; writes return Futures instead of blocking.
+	 * @return the asynchronous Mutation Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException 
+	 */
+	public AsyncMutationOps mutateAsync() throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException{
+		
+		return new AsyncMutationOps(this.tableName, this.cirrus);
+	}
+	
+	/**
+	 * Expand into the asynchronous Mutation interface, using a writer configured for this chain only.
+	 * @param writerConfig Writer settings (e.g. WriterConfig.LOW_LATENCY).
+	 * @return the asynchronous Mutation Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException 
+	 */
+	public AsyncMutationOps mutateAsync(WriterConfig writerConfig) throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException{
+		
+		return new AsyncMutationOps(this.tableName, this.cirrus, writerConfig);
+	}
+	
+	/**
+	 * Expand into the asynchronous Mutation interface with a writer configuration and ingest
+	 * queue for this chain only.
+	 * @param writerConfig Writer settings (e.g. WriterConfig.BULK_THROUGHPUT).
+	 * @param queue Ingest queue (capacity in bytes and full-queue policy).
+	 * @return the asynchronous Mutation Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws TableNotFoundException 
+	 */
+	public AsyncMutationOps mutateAsync(WriterConfig writerConfig, BoundedIngestQueue queue) throws AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException{
+		
+		return new AsyncMutationOps(this.tableName, this.cirrus, writerConfig, queue);
+	}
+	
+	/**
+	 * Load cells through bulk import: cells are sorted locally into RFiles, one per tablet,
+	 * and imported when load() is called.  The files are staged in a local temporary
+	 * directory, which suits a MockInstance or single-node instance.
+	 * @return the Bulk Load Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws IOException
+	 */
+	public BulkLoadOps bulkLoad() throws AccumuloException, AccumuloSecurityException, TableExistsException, IOException{
+		
+		return new BulkLoadOps(this.tableName, this.cirrus);
+	}
+	
+	/**
+	 * Load cells through bulk import, staging the RFiles in a directory the tablet servers
+	 * can read (e.g. on HDFS).
+	 * @param directory Hadoop path of the import directory; it should be new or empty.
+	 * @return the Bulk Load Fluent Interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 * @throws TableExistsException
+	 * @throws IOException
+	 */
+	public BulkLoadOps bulkLoad(String directory) throws AccumuloException, AccumuloSecurityException, TableExistsException, IOException{
+		
+		return new BulkLoadOps(this.tableName, this.cirrus, directory);
+	}
+	
 	public ScanOps scan(String... authorizations) throws TableNotFoundException {
 		
-		Scanner scanner = this.cirrus.connector.createScanner(this.tableName, new Authorizations(authorizations));
+		Authorizations auths = new Authorizations(authorizations);
+		
+		Scanner scanner = this.cirrus.connector.createScanner(this.tableName, auths);
+		
+		return new ScanOps(this.cirrus, this.tableName, auths, scanner);
+	}
+	
+	/**
+	 * Scan many ranges of the table in parallel across the tablet servers.
+	 * @param numberOfThreads Number of query threads the BatchScanner will use.
+	 * @param authorizations Authorizations used to read the cells.
+	 * @return Fluent interface for the batch scan.
+	 * @throws TableNotFoundException
+	 */
+	public BatchScanOps batchScan(int numberOfThreads, String... authorizations) throws TableNotFoundException {
 		
-		return new ScanOps(this.cirrus, scanner);
+		return scan(authorizations).batchScan(numberOfThreads);
 	}
 	
 	/**
@@ -126,9 +258,158 @@ public class TableOps extends TableFluentExtension {
 		
 		this.table.setProperty(this.tableName, TABLE_MAX_VERSIONS, Integer.toString(maxNumberOfVersions));
 		
+		this.cirrus.tableCache.propertiesChanged(this.tableName);
+		
+		return this;
+	}
+	
+	/**
+	 * Attach an iterator to the table for every scope (scan, minor and major compaction),
+	 * so it filters or combines cells persistently on the tablet servers.
+	 * @param setting Iterator, with its priority, name and options.
+	 * @return Returns the fluent interface.
+	 * @throws AccumuloSecurityException
+	 * @throws AccumuloException
+	 * @throws TableNotFoundException
+	 */
+	public TableOps attachIterator(IteratorSetting setting) throws AccumuloSecurityException, AccumuloException, TableNotFoundException{
+		
+		return attachIterator(setting, EnumSet.allOf(IteratorScope.class));
+	}
+	
+	/**
+	 * Attach an iterator to the table for the given scopes.
+	 * @param setting Iterator, with its priority, name and options.
+	 * @param scopes Scopes the iterator runs in.
+	 * @return Returns the fluent interface.
+	 * @throws AccumuloSecurityException
+	 * @throws AccumuloException
+	 * @throws TableNotFoundException
+	 */
+	public TableOps attachIterator(IteratorSetting setting, EnumSet<IteratorScope> scopes) throws AccumuloSecurityException, AccumuloException, TableNotFoundException{
+		
+		this.table.attachIterator(this.tableName, setting, scopes);
+		
+		this.cirrus.tableCache.propertiesChanged(this.tableName);
+		
+		this.cirrus.tableChanged(this.tableName);
+		
+		return this;
+	}
+	
+	/**
+	 * Remove an iterator attached to the table, from every scope.
+	 * @param name Name of the iterator.
+	 * @return Returns the fluent interface.
+	 * @throws AccumuloSecurityException
+	 * @throws AccumuloException
+	 * @throws TableNotFoundException
+	 */
+	public TableOps removeIterator(String name) throws AccumuloSecurityException, AccumuloException, TableNotFoundException{
+		
+		this.table.removeIterator(this.tableName, name, EnumSet.allOf(IteratorScope.class));
+		
+		this.cirrus.tableCache.propertiesChanged(this.tableName);
+		
+		this.cirrus.tableChanged(this.tableName);
+		
+		return this;
+	}
+	
+	/**
+	 * Enable or disable the tablet servers' Bloom filters (table.bloom.enabled), which
+	 * let scans for absent rows skip files that cannot contain them.
+	 * @param enabled Enable the Bloom filters?
+	 * @return Returns the fluent interface.
+	 * @throws AccumuloException
+	 * @throws AccumuloSecurityException
+	 */
+	public TableOps bloomFilters(boolean enabled) throws AccumuloException, AccumuloSecurityException{
+		
+		return setProperty(TABLE_BLOOM_ENABLED, Boolean.toString(enabled));
+	}
+	
+	/**
+	 * Answer lookups of rows the filter rules out without scanning (ScanOps.cell(...) and
+	 * row(...)).  The filter is only consulted by lookups whose authorizations are a subset of
+	 * the ones it was built with (RowBloomFilter.authorizations()), and replaces the table's
+	 * filter built with the same authorizations.  Rows written through Cirrus are added to the
+	 * filter; rows written by other clients are not, and will be reported absent until the
+	 * filter is rebuilt.
+	 * @param rowFilter Bloom filter of the table's row ids, or null to remove all of them.
+	 * @return Returns the fluent interface.
+	 */
+	public TableOps rowFilter(RowBloomFilter rowFilter){
+		
+		if (rowFilter == null){
+			
+			this.cirrus.rowFilters.remove(this.tableName);
+		}
+		else {
+			
+			this.cirrus.rowFilters.put(this.tableName, rowFilter);
+		}
+		
 		return this;
 	}
 	
+	/**
+	 * Get the table's row filter built with the authorizations.
+	 * @param authorizations Authorizations the filter was built with.
+	 * @return Bloom filter of the table's row ids, or null if it has none.
+	 */
+	public RowBloomFilter rowFilter(String... authorizations){
+		
+		return this.cirrus.rowFilters.get(this.tableName, new Authorizations(authorizations));
+	}
+	
+	/**
+	 * Build the table's row filter from a scan of its row ids (one cell per row is
+	 * returned by the tablet servers), and use it for lookups (see rowFilter(...)).  Rows
+	 * written through Cirrus during the scan are added to the filter as well.
+	 * @param expectedRows Number of rows the filter will hold.
+	 * @param falsePositiveRate Probability that an absent row is reported as possibly present.
+	 * @param authorizations Authorizations used to read the rows.
+	 * @return Returns the fluent interface.
+	 * @throws TableNotFoundException
+	 */
+	public TableOps buildRowFilter(int expectedRows, double falsePositiveRate, String... authorizations) throws TableNotFoundException{
+		
+		Authorizations auths = new Authorizations(authorizations);
+		
+		RowBloomFilter rowFilter = new RowBloomFilter(expectedRows, falsePositiveRate, auths);
+		
+		// Registered before the scan, so rows written while it runs are not missed.
+		this.cirrus.rowFilters.building(this.tableName, rowFilter);
+		
+		boolean built = false;
+		
+		try {
+			
+			Scanner scanner = this.cirrus.connector.createScanner(this.tableName, auths);
+			
+			scanner.addScanIterator(new IteratorSetting(ScanOps.FIRST_ITERATOR_PRIORITY, "cirrusFirstEntryInRow", FirstEntryInRowIterator.class));
+			
+			for (Entry<Key, Value> cell : scanner){
+				
+				ByteSequence row = cell.getKey().getRowData();
+				
+				rowFilter.add(CompactRow.Builder.bytes(row));
+			}
+			
+			built = true;
+		}
+		finally {
+			
+			if (!built){
+				
+				this.cirrus.rowFilters.remove(this.tableName, rowFilter);
+			}
+		}
+		
+		return rowFilter(rowFilter);
+	}
+	
 	/**
 	 * Set a table property.
 	 * @param key A string representing the key of a configuration setting.
@@ -141,6 +422,8 @@ public class TableOps extends TableFluentExtension {
 		
 		this.table.setProperty(this.tableName, key, value);
 		
+		this.cirrus.tableCache.propertiesChanged(this.tableName);
+		
 		return this;
 	}
 	
@@ -152,7 +435,7 @@ public class TableOps extends TableFluentExtension {
 	 */
 	public Iterable<Entry<String, String>>  properties() throws AccumuloException, TableNotFoundException{
 		
-		return this.table.getProperties(this.tableName);
+		return this.cirrus.tableCache.properties(this.tableName);
 	}
 	
 	/**
@@ -19,6 +19,19 @@ public class ValueMutationOps<T> {
 		public void complete(Mutation mutation) throws MutationsRejectedException;
 	}
 	
+	static final byte[] EMPTY = new byte[0];
+	
+	/**
+	 * Each thread wraps its encoded values in one Value, rather than one per put.
+	 */
+	static final ThreadLocal<Value> SCRATCH_VALUE = new ThreadLocal<Value>(){
+		@Override
+		protected Value initialValue() {
+			
+			return new Value(EMPTY);
+		}
+	};
+	
 	T parent;
 	ColumnIdentifiers columnIdentifiers;
 	Mutation mutation;
@@ -118,31 +131,48 @@ public class ValueMutationOps<T> {
 	
 	T handleValue(byte[] value, long timestamp) throws MutationsRejectedException {
 		
-		Text cf = new Text(columnIdentifiers.getColumnFamily());
-		Text cq = new Text(columnIdentifiers.getColumnQualifier());
-		Value v = new Value(value);
+		put(this.mutation, this.columnIdentifiers, value, timestamp);
+		
+		onComplete.complete(mutation);
+		
+		return parent;
+	}
+	
+	/**
+	 * Add a cell to a Mutation.
+	 * @param mutation Mutation to add the cell to.
+	 * @param columnIdentifiers Column of the cell.
+	 * @param value Encoded value.
+	 * @param timestamp Timestamp of the cell; 0 lets the tablet server set it.
+	 */
+	static void put(Mutation mutation, ColumnIdentifiers columnIdentifiers, byte[] value, long timestamp){
+		
+		// The Mutation copies the column identifiers into its buffer, so the cached
+		// encodings and this thread's Value can be reused for every put.
+		Text cf = columnIdentifiers.columnFamilyText();
+		Text cq = columnIdentifiers.columnQualifierText();
+		ColumnVisibility cv = columnIdentifiers.columnVisibility();
+		Value v = SCRATCH_VALUE.get();
+		
+		v.set(value);
 		
-		if (columnIdentifiers.hasVisibilityExpression() && timestamp != 0){
+		if (cv != null && timestamp != 0){
 			
-			this.mutation.put(cf, cq, 
-				new ColumnVisibility(columnIdentifiers.getVisibilityExpression()), timestamp, v);
+			mutation.put(cf, cq, cv, timestamp, v);
 		}
-		else if (columnIdentifiers.hasVisibilityExpression()){
+		else if (cv != null){
 			
-			this.mutation.put(cf, cq, 
-				new ColumnVisibility(columnIdentifiers.getVisibilityExpression()), v);
+			mutation.put(cf, cq, cv, v);
 		}
 		else if (timestamp != 0){
 			
-			this.mutation.put(cf, cq, timestamp, v);
+			mutation.put(cf, cq, timestamp, v);
 		}
 		else {
 			
-			this.mutation.put(cf, cq, v);
+			mutation.put(cf, cq, v);
 		}
 		
-		onComplete.complete(mutation);
-		
-		return parent;
+		v.set(EMPTY);
 	}
 }
\ No newline at end of file
@@ -8,9 +8,6 @@ import java.util.UUID;
 
 import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.data.Mutation;
-import org.apache.accumulo.core.data.Value;
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.hadoop.io.Text;
 
 public class ValueOps<T> {
 	
@@ -118,28 +115,7 @@ public class ValueOps<T> {
 	
 	T handleValue(byte[] value, long timestamp) throws MutationsRejectedException {
 		
-		Text cf = new Text(columnIdentifiers.getColumnFamily());
-		Text cq = new Text(columnIdentifiers.getColumnQualifier());
-		Value v = new Value(value);
-		
-		if (columnIdentifiers.hasVisibilityExpression() && timestamp != 0){
-			
-			this.mutation.put(cf, cq, 
-				new ColumnVisibility(columnIdentifiers.getVisibilityExpression()), timestamp, v);
-		}
-		else if (columnIdentifiers.hasVisibilityExpression()){
-			
-			this.mutation.put(cf, cq, 
-				new ColumnVisibility(columnIdentifiers.getVisibilityExpression()), v);
-		}
-		else if (timestamp != 0){
-			
-			this.mutation.put(cf, cq, timestamp, v);
-		}
-		else {
-			
-			this.mutation.put(cf, cq, v);
-		}
+		ValueMutationOps.put(this.mutation, columnIdentifiers, value, timestamp);
 		
 		onComplete.complete(mutation);
 		
@@ -0,0 +1,159 @@
+package com.berico.accumulo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+/**
+ * A bounded, least-recently-used cache of parsed ColumnVisibility objects,
+ * keyed by expression.  Tables typically use a handful of distinct expressions
+ * ("SECRET", "A&(B|C)"), so parsing each one once and sharing the result
+ * saves running the expression parser on every cell.
+ *
+ * The mutation builders share one cache (VisibilityCache.shared()).  Cached
+ * instances are shared between threads and must not be modified.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class VisibilityCache {
+	
+	/**
+	 * Default maximum number of expressions held by the shared cache.
+	 */
+	public static int DEFAULT_MAX_SIZE = 1024;
+	
+	static final VisibilityCache SHARED = new VisibilityCache(DEFAULT_MAX_SIZE);
+	
+	final int maxSize;
+	
+	final Map<String, ColumnVisibility> visibilities;
+	
+	final AtomicLong hits = new AtomicLong();
+	
+	final AtomicLong misses = new AtomicLong();
+	
+	final AtomicLong evictions = new AtomicLong();
+	
+	/**
+	 * Initialize the cache.
+	 * @param maxSize Maximum number of expressions held; the least recently used is evicted.
+	 */
+	public VisibilityCache(final int maxSize){
+		
+		this.maxSize = maxSize;
+		
+		this.visibilities = new LinkedHashMap<String, ColumnVisibility>(16, 0.75f, true){
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ColumnVisibility> eldest) {
+				
+				if (size() > maxSize){
+					
+					evictions.incrementAndGet();
+					
+					return true;
+				}
+				
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * The cache shared by the mutation builders.
+	 * @return Shared cache.
+	 */
+	public static VisibilityCache shared(){
+		
+		return SHARED;
+	}
+	
+	/**
+	 * Get the parsed visibility for the expression, parsing it if it is not cached.
+	 * @param expression Visibility expression.
+	 * @return Parsed visibility.
+	 */
+	public ColumnVisibility get(String expression){
+		
+		ColumnVisibility visibility;
+		
+		synchronized (this.visibilities) {
+			
+			visibility = this.visibilities.get(expression);
+		}
+		
+		if (visibility != null){
+			
+			this.hits.incrementAndGet();
+			
+			return visibility;
+		}
+		
+		this.misses.incrementAndGet();
+		
+		// Parse outside the lock; two threads missing on the same expression both parse it.
+		visibility = new ColumnVisibility(expression);
+		
+		synchronized (this.visibilities) {
+			
+			this.visibilities.put(expression, visibility);
+		}
+		
+		return visibility;
+	}
+	
+	/* ####### Metrics ######################################################################### */
+	
+	public long hits(){
+		
+		return this.hits.get();
+	}
+	
+	public long misses(){
+		
+		return this.misses.get();
+	}
+	
+	public long evictions(){
+		
+		return this.evictions.get();
+	}
+	
+	/**
+	 * Number of cached expressions.
+	 * @return Cache size.
+	 */
+	public int size(){
+		
+		synchronized (this.visibilities) {
+			
+			return this.visibilities.size();
+		}
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Forget every cached expression (the counters are kept).
+	 */
+	public void clear(){
+		
+		synchronized (this.visibilities) {
+			
+			this.visibilities.clear();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		
+		return String.format("VisibilityCache[size=%d/%d, hits=%d, misses=%d, evictions=%d]",
+			size(), this.maxSize, hits(), misses(), evictions());
+	}
+}
@@ -0,0 +1,140 @@
+package com.berico.accumulo;
+
+/**
+ * Immutable BatchWriter settings.  A configuration can be set for every
+ * chain on a Cirrus (Cirrus.writerConfig()), or for a single chain
+ * (TableOps.mutate(WriterConfig)).
+ *
+ * Chains with equal configurations share a writer (see WriterPool), so a
+ * latency-sensitive writer and a bulk ingester can run side by side in the
+ * same JVM with different settings.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public final class WriterConfig {
+	
+	/**
+	 * Small buffer and short timeout: mutations reach the tablet servers quickly.
+	 */
+	public static final WriterConfig LOW_LATENCY = new WriterConfig(256 * 1024L, 50L, 4);
+	
+	/**
+	 * Large buffer, long timeout and many threads: fewer, bigger batches.
+	 */
+	public static final WriterConfig BULK_THROUGHPUT = new WriterConfig(64 * 1024 * 1024L, 5000L, 16);
+	
+	final long memoryBuffer;
+	
+	final long timeout;
+	
+	final int numberOfThreads;
+	
+	/**
+	 * Initialize the configuration.
+	 * @param memoryBuffer Bytes to store before sending a batch.
+	 * @param timeout Milliseconds to wait before sending (0 waits for the buffer to fill).
+	 * @param numberOfThreads Number of threads to use.
+	 */
+	public WriterConfig(long memoryBuffer, long timeout, int numberOfThreads){
+		
+		this.memoryBuffer = memoryBuffer;
+		this.timeout = timeout;
+		this.numberOfThreads = numberOfThreads;
+	}
+	
+	/**
+	 * The configuration described by the MutationOps.WRITER_* fields.
+	 * @return Default configuration.
+	 */
+	public static WriterConfig defaults(){
+		
+		return new WriterConfig(
+			MutationOps.WRITER_MEMORY_BUFFER, MutationOps.WRITER_TIMEOUT, MutationOps.WRITER_NUMBER_OF_THREADS);
+	}
+	
+	/**
+	 * Copy the configuration with a different memory buffer.
+	 * @param memoryBuffer Bytes to store before sending a batch.
+	 * @return A new configuration.
+	 */
+	public WriterConfig withMemoryBuffer(long memoryBuffer){
+		
+		return new WriterConfig(memoryBuffer, this.timeout, this.numberOfThreads);
+	}
+	
+	/**
+	 * Copy the configuration with a different timeout.
+	 * @param timeout Milliseconds to wait before sending.
+	 * @return A new configuration.
+	 */
+	public WriterConfig withTimeout(long timeout){
+		
+		return new WriterConfig(this.memoryBuffer, timeout, this.numberOfThreads);
+	}
+	
+	/**
+	 * Copy the configuration with a different number of threads.
+	 * @param numberOfThreads Number of threads to use.
+	 * @return A new configuration.
+	 */
+	public WriterConfig withNumberOfThreads(int numberOfThreads){
+		
+		return new WriterConfig(this.memoryBuffer, this.timeout, numberOfThreads);
+	}
+	
+	/**
+	 * Get the bytes to store before sending a batch.
+	 * @return Buffer size in bytes
+	 */
+	public long getMemoryBuffer() {
+		return memoryBuffer;
+	}
+	
+	/**
+	 * Get the milliseconds to wait before sending a batch.
+	 * @return Timeout in milliseconds
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+	
+	/**
+	 * Get the number of threads the writer uses.
+	 * @return Number of threads
+	 */
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		
+		if (!(o instanceof WriterConfig)){
+			
+			return false;
+		}
+		
+		WriterConfig other = (WriterConfig) o;
+		
+		return this.memoryBuffer == other.memoryBuffer
+			&& this.timeout == other.timeout
+			&& this.numberOfThreads == other.numberOfThreads;
+	}
+	
+	@Override
+	public int hashCode() {
+		
+		int hash = (int) (this.memoryBuffer ^ (this.memoryBuffer >>> 32));
+		
+		hash = 31 * hash + (int) (this.timeout ^ (this.timeout >>> 32));
+		
+		return 31 * hash + this.numberOfThreads;
+	}
+	
+	@Override
+	public String toString() {
+		
+		return String.format("WriterConfig[memoryBuffer=%d, timeout=%d, numberOfThreads=%d]",
+			this.memoryBuffer, this.timeout, this.numberOfThreads);
+	}
+}
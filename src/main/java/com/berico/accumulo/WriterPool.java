@@ -0,0 +1,497 @@
+package com.berico.accumulo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Mutation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares one BatchWriter per table (and WriterConfig) between every MutationOps
+ * on a connection, so the number of writer threads (and buffered bytes) is bounded
+ * by the number of tables rather than by the number of fluent chains.
+ *
+ * Each MutationOps leases the writer for its table and configuration.  Closing a lease flushes
+ * the shared writer and returns the lease; the writer itself stays open for
+ * the next lease.  Cirrus.shutdown() returns the leases of one Cirrus and closes
+ * the writers no one leases any more; the pool itself is closed by
+ * SharedConnection.close() (ConnectionRegistry.shutdown()) or by the single JVM
+ * shutdown hook the pool registers.  TableOps.delete() and rename() evict the
+ * table's writers, which are bound to the table's id rather than its name.
+ *
+ * @author Richard Clayton (Berico Technologies)
+ */
+public class WriterPool {
+	
+	private static final Logger logger = LoggerFactory.getLogger(WriterPool.class);
+	
+	Connector connector;
+	
+	/**
+	 * Open writers, keyed by table name and configuration.
+	 */
+	Map<String, PooledWriter> writers = new HashMap<String, PooledWriter>();
+	
+	/**
+	 * Closes the writers when the application terminates; registered with the first writer.
+	 */
+	Thread shutdownHook = null;
+	
+	public WriterPool(Connector connector){
+		
+		this.connector = connector;
+	}
+	
+	/**
+	 * Lease the shared writer for the table with the default configuration, creating it if necessary.
+	 * @param tableName Name of the table.
+	 * @return A lease on the writer; closing the lease flushes the writer and returns the lease.
+	 * @throws TableNotFoundException
+	 */
+	public BatchWriter lease(String tableName) throws TableNotFoundException {
+		
+		return lease(tableName, WriterConfig.defaults());
+	}
+	
+	/**
+	 * Lease the shared writer for the table and configuration, creating it if necessary.
+	 * @param tableName Name of the table.
+	 * @param config Writer configuration.
+	 * @return A lease on the writer; closing the lease flushes the writer and returns the lease.
+	 * @throws TableNotFoundException
+	 */
+	public BatchWriter lease(String tableName, WriterConfig config) throws TableNotFoundException {
+		
+		return lease(tableName, config, null);
+	}
+	
+	/**
+	 * Lease the shared writer for the table and configuration, creating it if necessary.
+	 * @param tableName Name of the table.
+	 * @param config Writer configuration.
+	 * @param holder Set the lease is kept in until it is closed (e.g. the leases of one Cirrus); may be null.
+	 * @return A lease on the writer; closing the lease flushes the writer and returns the lease.
+	 * @throws TableNotFoundException
+	 */
+	public synchronized BatchWriter lease(String tableName, WriterConfig config, Set<BatchWriter> holder)
+		throws TableNotFoundException {
+		
+		String key = key(tableName, config);
+		
+		PooledWriter pooled = this.writers.get(key);
+		
+		if (pooled == null){
+			
+			BatchWriter writer = this.connector.createBatchWriter(tableName,
+				config.getMemoryBuffer(), config.getTimeout(), config.getNumberOfThreads());
+			
+			pooled = new PooledWriter(key, tableName, writer);
+			
+			this.writers.put(key, pooled);
+			
+			registerShutdownHook();
+		}
+		
+		pooled.leases++;
+		
+		Lease lease = new Lease(pooled, holder);
+		
+		if (holder != null){
+			
+			holder.add(lease);
+		}
+		
+		return lease;
+	}
+	
+	/**
+	 * Number of outstanding leases on the table's writer.
+	 * @param tableName Name of the table.
+	 * @param config Writer configuration.
+	 * @return Lease count (0 if there is no writer for the table).
+	 */
+	public synchronized int leases(String tableName, WriterConfig config){
+		
+		PooledWriter pooled = this.writers.get(key(tableName, config));
+		
+		return (pooled == null)? 0 : pooled.leases;
+	}
+	
+	/**
+	 * Number of open writers.
+	 * @return Writer count.
+	 */
+	public synchronized int size(){
+		
+		return this.writers.size();
+	}
+	
+	/**
+	 * Flush and close every writer, whether or not it is leased.  Writers are created again
+	 * if more leases are taken; outstanding leases fail.
+	 */
+	public void close(){
+		
+		closeWriters();
+		
+		synchronized (this) {
+			
+			if (this.shutdownHook != null){
+				
+				try {
+					
+					Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+					
+				} catch (IllegalStateException e) {
+					
+					// The JVM is already shutting down; the hook is running or has run.
+				}
+				
+				this.shutdownHook = null;
+			}
+		}
+	}
+	
+	void closeWriters(){
+		
+		List<PooledWriter> closing;
+		
+		synchronized (this) {
+			
+			closing = new ArrayList<PooledWriter>(this.writers.values());
+			
+			this.writers.clear();
+		}
+		
+		for (PooledWriter pooled : closing){
+			
+			logger.info("Closing writer for {} ({} outstanding leases)", pooled.tableName, pooled.leases);
+			
+			try {
+				
+				pooled.writer.close();
+				
+			} catch (MutationsRejectedException e) {
+				
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Flush and close the writers no one leases.
+	 */
+	public void closeIdle(){
+		
+		List<PooledWriter> closing = new ArrayList<PooledWriter>();
+		
+		synchronized (this) {
+			
+			Iterator<PooledWriter> writers = this.writers.values().iterator();
+			
+			while (writers.hasNext()){
+				
+				PooledWriter pooled = writers.next();
+				
+				if (pooled.leases == 0){
+					
+					writers.remove();
+					
+					closing.add(pooled);
+				}
+			}
+		}
+		
+		for (PooledWriter pooled : closing){
+			
+			logger.info("Closing idle writer for {}", pooled.tableName);
+			
+			try {
+				
+				pooled.writer.close();
+				
+			} catch (MutationsRejectedException e) {
+				
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Return a lease.  The writer stays open for the next lease, unless it was discarded
+	 * and this was its last lease.
+	 * @param pooled Writer the lease was taken on.
+	 */
+	void release(PooledWriter pooled){
+		
+		synchronized (this) {
+			
+			pooled.leases--;
+			
+			if (!pooled.discarded || pooled.leases > 0){
+				
+				return;
+			}
+		}
+		
+		closeDiscarded(pooled);
+	}
+	
+	/**
+	 * Stop leasing the writers of a table that was deleted or renamed: a BatchWriter
+	 * resolves the table's id when it is created, so it would keep writing to the old
+	 * table.  Outstanding leases keep their writer, which is closed (and flushed) once
+	 * its last lease is returned; the next lease gets a new writer.
+	 * @param tableName Name of the table.
+	 */
+	public void evict(String tableName){
+		
+		List<PooledWriter> evicted = new ArrayList<PooledWriter>();
+		
+		synchronized (this) {
+			
+			String prefix = tableName + '\0';
+			
+			for (PooledWriter pooled : this.writers.values()){
+				
+				if (pooled.key.startsWith(prefix)){
+					
+					evicted.add(pooled);
+				}
+			}
+		}
+		
+		for (PooledWriter pooled : evicted){
+			
+			discard(pooled);
+		}
+	}
+	
+	/**
+	 * A writer that rejected mutations is unusable; drop it so the next lease gets a new one.
+	 * @param pooled Writer that failed.
+	 */
+	void fail(PooledWriter pooled){
+		
+		synchronized (this) {
+			
+			pooled.failed = true;
+		}
+		
+		discard(pooled);
+	}
+	
+	/**
+	 * Drop a writer so the next lease gets a new one.  It is closed once its last lease is
+	 * returned: until then the other leases on it keep writing (or see its failure
+	 * themselves) rather than losing their mutations to a closed writer.
+	 * @param pooled Writer to drop.
+	 */
+	void discard(PooledWriter pooled){
+		
+		synchronized (this) {
+			
+			if (pooled.discarded){
+				
+				return;
+			}
+			
+			pooled.discarded = true;
+			
+			if (this.writers.get(pooled.key) == pooled){
+				
+				this.writers.remove(pooled.key);
+			}
+			
+			logger.info("Discarding {} writer for {} ({} outstanding leases)",
+				new Object[]{ (pooled.failed)? "failed" : "evicted", pooled.tableName, pooled.leases });
+			
+			if (pooled.leases > 0){
+				
+				return;
+			}
+		}
+		
+		closeDiscarded(pooled);
+	}
+	
+	void closeDiscarded(PooledWriter pooled){
+		
+		try {
+			
+			// Flushes an evicted writer and stops its threads.
+			pooled.writer.close();
+			
+		} catch (MutationsRejectedException e) {
+			
+			// A failed writer only reports the same failure again.
+			if (!isFailed(pooled)){
+				
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	synchronized boolean isFailed(PooledWriter pooled){
+		
+		return pooled.failed;
+	}
+	
+	static String key(String tableName, WriterConfig config){
+		
+		return tableName + '\0' + config;
+	}
+	
+	synchronized void registerShutdownHook(){
+		
+		if (this.shutdownHook != null){
+			
+			return;
+		}
+		
+		this.shutdownHook = new Thread(){
+			@Override
+			public void run(){ closeWriters(); }
+		};
+		
+		Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+		
+		logger.info("Shutdown hook registered");
+	}
+	
+	/**
+	 * A shared writer and the number of leases on it.
+	 */
+	static class PooledWriter {
+		
+		String key;
+		String tableName;
+		BatchWriter writer;
+		int leases = 0;
+		
+		/**
+		 * Set once the writer is dropped from the pool (failed or evicted); guarded by the pool.
+		 */
+		boolean discarded = false;
+		
+		/**
+		 * Set once the writer rejected mutations; guarded by the pool.
+		 */
+		boolean failed = false;
+		
+		PooledWriter(String key, String tableName, BatchWriter writer){
+			
+			this.key = key;
+			this.tableName = tableName;
+			this.writer = writer;
+		}
+	}
+	
+	/**
+	 * A lease on a shared writer.  Closing the lease flushes the writer, rather than closing it.
+	 */
+	class Lease implements BatchWriter {
+		
+		PooledWriter pooled;
+		Set<BatchWriter> holder;
+		boolean released = false;
+		
+		Lease(PooledWriter pooled, Set<BatchWriter> holder){
+			
+			this.pooled = pooled;
+			this.holder = holder;
+		}
+		
+		@Override
+		public void addMutation(Mutation m) throws MutationsRejectedException {
+			
+			try {
+				
+				this.pooled.writer.addMutation(m);
+				
+			} catch (MutationsRejectedException e) {
+				
+				fail(this.pooled);
+				
+				throw e;
+			}
+		}
+		
+		@Override
+		public void addMutations(Iterable<Mutation> iterable) throws MutationsRejectedException {
+			
+			try {
+				
+				this.pooled.writer.addMutations(iterable);
+				
+			} catch (MutationsRejectedException e) {
+				
+				fail(this.pooled);
+				
+				throw e;
+			}
+		}
+		
+		@Override
+		public void flush() throws MutationsRejectedException {
+			
+			try {
+				
+				this.pooled.writer.flush();
+				
+			} catch (MutationsRejectedException e) {
+				
+				fail(this.pooled);
+				
+				throw e;
+			}
+		}
+		
+		boolean isFailed(){
+			
+			return WriterPool.this.isFailed(this.pooled);
+		}
+		
+		@Override
+		public void close() throws MutationsRejectedException {
+			
+			synchronized (this) {
+				
+				// The chain and Cirrus.shutdown() may both close the lease.
+				if (this.released){
+					
+					return;
+				}
+				
+				this.released = true;
+			}
+			
+			try {
+				
+				// A failed writer only reports its failure again (or is already closed).
+				if (!isFailed()){
+					
+					flush();
+				}
+			}
+			finally {
+				
+				if (this.holder != null){
+					
+					this.holder.remove(this);
+				}
+				
+				release(this.pooled);
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AsyncMutationOpsTest {
+	
+	Cirrus cirrus;
+	
+	BatchWriter writer;
+	BatchWriter replacement;
+	
+	@Before
+	public void setUp() throws Exception {
+		
+		this.writer = mock(BatchWriter.class);
+		this.replacement = mock(BatchWriter.class);
+		
+		this.cirrus = mock(Cirrus.class);
+		this.cirrus.tableOperations = mock(TableOperations.class);
+		this.cirrus.tableCache = new TableMetadataCache(this.cirrus.tableOperations);
+		
+		when(this.cirrus.lease(anyString(), any(WriterConfig.class))).thenReturn(this.writer, this.replacement);
+	}
+	
+	AsyncMutationOps chain() throws Exception {
+		
+		return new AsyncMutationOps("us_cities", this.cirrus, WriterConfig.defaults(), new BoundedIngestQueue());
+	}
+	
+	static Mutation mutation(String row){
+		
+		Mutation mutation = new Mutation(row);
+		
+		mutation.put("meta", "name", new Value(ConversionUtils.toByteArray(row)));
+		
+		return mutation;
+	}
+	
+	@Test
+	public void futures_complete_once_their_batch_is_flushed() throws Exception {
+		
+		final CountDownLatch flushing = new CountDownLatch(1);
+		
+		doAnswer(new Answer<Void>(){
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				
+				flushing.await();
+				
+				return null;
+			}
+		}).when(this.writer).flush();
+		
+		AsyncMutationOps ops = chain();
+		
+		Mutation manassas = mutation("usa.va.manassas");
+		
+		Future<Mutation> future = ops.submit(manassas);
+		
+		Thread.sleep(200);
+		
+		assertFalse("The future completed before the flush", future.isDone());
+		
+		flushing.countDown();
+		
+		assertSame(manassas, future.get(5, TimeUnit.SECONDS));
+		
+		verify(this.writer).addMutations(anyListOf(Mutation.class));
+		verify(this.cirrus).written("us_cities", manassas);
+		
+		ops.done();
+	}
+	
+	@Test
+	public void a_rejected_batch_fails_only_its_own_futures() throws Exception {
+		
+		MutationsRejectedException rejected = mock(MutationsRejectedException.class);
+		
+		doThrow(rejected).when(this.writer).flush();
+		
+		AsyncMutationOps ops = chain();
+		
+		Future<Mutation> failed = ops.submit(mutation("usa.va.manassas"));
+		
+		try {
+			
+			failed.get(5, TimeUnit.SECONDS);
+			
+			fail("The rejected mutation's future should fail.");
+			
+		} catch (ExecutionException e) {
+			
+			assertSame(rejected, e.getCause());
+		}
+		
+		// The submitter kept running and renewed its lease on the rejected writer.
+		Mutation reston = mutation("usa.va.reston");
+		
+		assertSame(reston, ops.submit(reston).get(5, TimeUnit.SECONDS));
+		
+		verify(this.writer).close();
+		verify(this.replacement).addMutations(anyListOf(Mutation.class));
+		verify(this.replacement).flush();
+		
+		ops.done();
+		
+		verify(this.replacement).close();
+	}
+	
+	@Test
+	public void a_put_after_done_fails_rather_than_hangs() throws Exception {
+		
+		AsyncMutationOps ops = chain();
+		
+		ops.done();
+		
+		Future<Mutation> late = ops.put("usa.va.reston", "meta", "name").value("Reston");
+		
+		try {
+			
+			late.get(5, TimeUnit.SECONDS);
+			
+			fail("A mutation submitted after done() should fail.");
+			
+		} catch (ExecutionException e) {
+			
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		
+		verify(this.writer, never()).addMutations(anyListOf(Mutation.class));
+	}
+}
@@ -0,0 +1,167 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.junit.Test;
+
+import com.berico.accumulo.AsyncMutationOps.Submission;
+import com.berico.accumulo.BoundedIngestQueue.Policy;
+
+public class BoundedIngestQueueTest {
+	
+	static Submission submission(String row, long size){
+		
+		Submission submission = new Submission(new Mutation(row), new MutationFuture());
+		
+		// Fixed sizes keep the accounting independent of Mutation's estimate.
+		submission.size = size;
+		
+		return submission;
+	}
+	
+	@Test
+	public void accounts_for_the_bytes_queued_and_drained() throws Exception {
+		
+		BoundedIngestQueue queue = new BoundedIngestQueue(100, Policy.BLOCK);
+		
+		queue.offer(submission("a", 30));
+		queue.offer(submission("b", 50));
+		
+		assertEquals(2, queue.size());
+		assertEquals(80, queue.bytes());
+		
+		assertEquals("a", new String(queue.poll(0, TimeUnit.MILLISECONDS).mutation.getRow()));
+		assertEquals(50, queue.bytes());
+		
+		queue.offer(submission("c", 40));
+		
+		List<Submission> drained = new ArrayList<Submission>();
+		
+		assertEquals(2, queue.drainTo(drained, 10));
+		assertEquals(0, queue.bytes());
+		assertTrue(queue.isEmpty());
+		
+		assertEquals(90, queue.highWaterMark());
+		assertEquals(3, queue.accepted());
+		
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+	}
+	
+	@Test
+	public void admits_a_mutation_larger_than_the_capacity_when_empty() throws Exception {
+		
+		BoundedIngestQueue queue = new BoundedIngestQueue(10, Policy.FAIL_FAST);
+		
+		assertTrue(queue.offer(submission("a", 100)));
+		assertEquals(100, queue.bytes());
+	}
+	
+	@Test
+	public void block_waits_for_room() throws Exception {
+		
+		final BoundedIngestQueue queue = new BoundedIngestQueue(20, Policy.BLOCK);
+		
+		queue.offer(submission("a", 10));
+		queue.offer(submission("b", 10));
+		
+		Thread producer = new Thread(){
+			@Override
+			public void run(){
+				
+				try {
+					
+					queue.offer(submission("c", 10));
+					
+				} catch (InterruptedException e) {}
+			}
+		};
+		
+		producer.start();
+		
+		producer.join(200);
+		
+		assertTrue("The producer should be blocked", producer.isAlive());
+		assertEquals(2, queue.size());
+		
+		queue.poll(0, TimeUnit.MILLISECONDS);
+		
+		producer.join(5000);
+		
+		assertFalse(producer.isAlive());
+		assertEquals(2, queue.size());
+		assertEquals(20, queue.bytes());
+		assertTrue(queue.blockedMillis() > 0);
+	}
+	
+	@Test
+	public void drop_fails_the_future() throws Exception {
+		
+		BoundedIngestQueue queue = new BoundedIngestQueue(20, Policy.DROP);
+		
+		queue.offer(submission("a", 15));
+		
+		Submission dropped = submission("b", 10);
+		
+		assertFalse(queue.offer(dropped));
+		
+		try {
+			
+			dropped.future.get();
+			
+			fail("The dropped mutation's future should fail.");
+			
+		} catch (ExecutionException e) {
+			
+			assertTrue(e.getCause() instanceof IngestQueueFullException);
+		}
+		
+		assertEquals(1, queue.dropped());
+		assertEquals(1, queue.size());
+		assertEquals(15, queue.bytes());
+	}
+	
+	@Test
+	public void fail_fast_throws_to_the_producer() throws Exception {
+		
+		BoundedIngestQueue queue = new BoundedIngestQueue(20, Policy.FAIL_FAST);
+		
+		queue.offer(submission("a", 15));
+		
+		try {
+			
+			queue.offer(submission("b", 10));
+			
+			fail("The producer should get an IngestQueueFullException.");
+			
+		} catch (IngestQueueFullException e) {}
+		
+		assertEquals(1, queue.rejected());
+		assertEquals(1, queue.size());
+		assertEquals(15, queue.bytes());
+	}
+	
+	@Test
+	public void serves_only_one_chain(){
+		
+		BoundedIngestQueue queue = new BoundedIngestQueue();
+		
+		Object chain = new Object();
+		
+		queue.bind(chain);
+		queue.bind(chain);
+		
+		try {
+			
+			queue.bind(new Object());
+			
+			fail("A second chain should not take the queue.");
+			
+		} catch (IllegalStateException e) {}
+	}
+}
@@ -0,0 +1,104 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class CellCacheTest {
+	
+	static final Authorizations AUTHS = new Authorizations("SECRET");
+	
+	static Entry<Key, Value> cell(String row, String family, String qualifier, String value){
+		
+		return new SimpleEntry<Key, Value>(new Key(row, family, qualifier), new Value(value.getBytes()));
+	}
+	
+	@Test
+	public void caches_cells_until_invalidated_by_a_mutation(){
+		
+		CellCache cache = new CellCache().configure(1024 * 1024, 60000L);
+		
+		assertNull(cache.get("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null));
+		
+		cache.put("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null, 
+			cell("usa.va.manassas", "meta", "zipcode", "20110"));
+		
+		assertEquals("20110", cache.get("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null).getValue().toString());
+		assertNull(cache.get("cities", new Authorizations(), "usa.va.manassas", "meta", "zipcode", null));
+		assertNull(cache.get("towns", AUTHS, "usa.va.manassas", "meta", "zipcode", null));
+		
+		Mutation mutation = new Mutation(new Text("usa.va.manassas"));
+		
+		mutation.putDelete(new Text("meta"), new Text("zipcode"));
+		
+		cache.invalidate("cities", mutation);
+		
+		assertNull(cache.get("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null));
+		
+		assertEquals(1, cache.hits());
+		assertEquals(4, cache.misses());
+		assertEquals(1, cache.invalidations());
+		assertEquals(0, cache.bytes());
+	}
+	
+	@Test
+	public void evicts_the_least_recently_used_column(){
+		
+		CellCache cache = new CellCache().configure(3 * (CellCache.CELL_OVERHEAD + 20), 60000L);
+		
+		for (int i = 0; i < 3; i++){
+			
+			cache.put("cities", AUTHS, "row" + i, "meta", "zip", null, cell("row" + i, "meta", "zip", "12345"));
+		}
+		
+		assertNotNull(cache.get("cities", AUTHS, "row0", "meta", "zip", null));
+		
+		cache.put("cities", AUTHS, "row3", "meta", "zip", null, cell("row3", "meta", "zip", "12345"));
+		
+		assertNull(cache.get("cities", AUTHS, "row1", "meta", "zip", null));
+		assertNotNull(cache.get("cities", AUTHS, "row0", "meta", "zip", null));
+		assertEquals(1, cache.evictions());
+	}
+	
+	@Test
+	public void expired_cells_are_not_returned(){
+		
+		CellCache cache = new CellCache().configure(1024 * 1024, -1L);
+		
+		cache.put("cities", AUTHS, "row", "meta", "zip", null, cell("row", "meta", "zip", "12345"));
+		
+		assertNull(cache.get("cities", AUTHS, "row", "meta", "zip", null));
+		assertEquals(0, cache.size());
+	}
+	
+	@Test
+	public void a_cell_scanned_before_an_invalidation_is_not_cached(){
+		
+		CellCache cache = new CellCache().configure(1024 * 1024, 60000L);
+		
+		long stamp = cache.stamp("cities", "usa.va.manassas", "meta", "zipcode");
+		
+		// A write to the column is flushed while the old cell is being scanned.
+		cache.invalidate("cities", "usa.va.manassas", "meta", "zipcode");
+		
+		cache.put("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null, 
+			cell("usa.va.manassas", "meta", "zipcode", "20110"), stamp);
+		
+		assertNull(cache.get("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null));
+		
+		stamp = cache.stamp("cities", "usa.va.manassas", "meta", "zipcode");
+		
+		cache.put("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null, 
+			cell("usa.va.manassas", "meta", "zipcode", "20111"), stamp);
+		
+		assertEquals("20111", cache.get("cities", AUTHS, "usa.va.manassas", "meta", "zipcode", null).getValue().toString());
+	}
+}
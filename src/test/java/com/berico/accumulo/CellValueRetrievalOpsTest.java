@@ -0,0 +1,82 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Test;
+
+import com.berico.accumulo.CellValueRetrievalOps.IntValueHandler;
+import com.berico.accumulo.CellValueRetrievalOps.ValueHandler;
+
+public class CellValueRetrievalOpsTest {
+	
+	@Test
+	public void missing_cells_fall_back_to_defaults(){
+		
+		CellValueRetrievalOps missing = new CellValueRetrievalOps(null, null);
+		
+		assertFalse(missing.exists());
+		assertEquals(-1, missing.asIntOr(-1));
+		assertEquals(-1L, missing.asLongOr(-1L));
+		assertEquals(0.5, missing.asDoubleOr(0.5), 0.0);
+		assertNull(missing.asStringOr(null));
+		
+		missing.ifPresent(new ValueHandler<Entry<SimpleKey, Value>>(){
+			@Override
+			public void handle(Entry<SimpleKey, Value> value) {
+				
+				fail("Handler called for a missing cell.");
+			}
+		});
+	}
+	
+	@Test
+	public void present_cells_ignore_defaults() throws Exception {
+		
+		Entry<Key, Value> entry = new SimpleEntry<Key, Value>(
+			new Key("usa.va.manassas", "meta", "zipcode"), new Value(ConversionUtils.toByteArray(20110)));
+		
+		CellValueRetrievalOps cell = new CellValueRetrievalOps(null, entry);
+		
+		assertTrue(cell.exists());
+		assertEquals(20110, cell.asIntOr(-1));
+		assertEquals(Integer.valueOf(20110), cell.asOr(Integer.class, null));
+		
+		final List<Integer> handled = new ArrayList<Integer>();
+		
+		cell.ifPresent(new ValueHandler<Integer>(){
+			@Override
+			public void handle(Integer value) {
+				
+				handled.add(value);
+			}
+		}, Integer.class);
+		
+		assertEquals(1, handled.size());
+	}
+	
+	@Test
+	public void primitive_handlers_receive_the_value_unboxed() throws Exception {
+		
+		Entry<Key, Value> entry = new SimpleEntry<Key, Value>(
+			new Key("usa.va.manassas", "meta", "zipcode"), new Value(ConversionUtils.toByteArray(20110)));
+		
+		final int[] handled = new int[1];
+		
+		new CellValueRetrievalOps(null, entry).forInt(new IntValueHandler(){
+			@Override
+			public void handle(int value) {
+				
+				handled[0] = value;
+			}
+		});
+		
+		assertEquals(20110, handled[0]);
+	}
+}
\ No newline at end of file
@@ -154,4 +154,79 @@ public class ColumnIdentifiersTest {
 		assertEquals("public&[private|protected]", actualTrailsButNotLeadsWithBrackets);
 	}
 	
+	@Test
+	public void parse_matches_split_on_separator(){
+		
+		String[] expressions = new String[]{
+			"meta:zipcode",
+			"meta:zipcode:public",
+			"meta:zipcode:[public]",
+			"meta:zipcode:[(public|protected)&admin]",
+			"meta:zipcode:",
+			"meta:zipcode::",
+			"meta::public",
+			":zipcode",
+			"meta:zipcode::public",
+			"meta:zipcode:public:ignored",
+			"meta:zipcode:public:"
+		};
+		
+		for (String expression : expressions){
+			
+			String[] parts = expression.split(ColumnIdentifiers.COLUMN_IDENT_SEPARATOR);
+			
+			String[] parsed = ColumnIdentifiers.parse(expression);
+			
+			assertEquals(expression, parts[0], parsed[0]);
+			
+			assertEquals(expression, parts[1], parsed[1]);
+			
+			assertEquals(expression, (parts.length > 2)? ColumnIdentifiers.stripBrackets(parts[2]) : null, parsed[2]);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_rejects_expression_without_qualifier(){
+		
+		ColumnIdentifiers.parse("meta");
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_rejects_expression_with_empty_trailing_qualifier(){
+		
+		ColumnIdentifiers.parse("meta::");
+	}
+	
+	@Test
+	public void compile_returns_interned_handle_with_parsed_identifiers(){
+		
+		CompiledColumn column = ColumnIdentifiers.compile("meta:zipcode:[public]");
+		
+		assertSame(column, ColumnIdentifiers.compile("meta:zipcode:[public]"));
+		
+		assertEquals("meta", column.getColumnFamily());
+		
+		assertEquals("zipcode", column.getColumnQualifier());
+		
+		assertEquals("public", column.getVisibilityExpression());
+		
+		assertTrue(column.hasVisibilityExpression());
+		
+		assertArrayEquals("meta".getBytes(), column.getColumnFamilyBytes());
+		
+		assertArrayEquals("zipcode".getBytes(), column.getColumnQualifierBytes());
+	}
+	
+	@Test
+	public void encoded_identifiers_follow_reassigned_fields(){
+		
+		ColumnIdentifiers columnIdentifiers = new ColumnIdentifiers("meta:zipcode");
+		
+		assertEquals("zipcode", columnIdentifiers.columnQualifierText().toString());
+		
+		columnIdentifiers.columnQualifier = "city";
+		
+		assertEquals("city", columnIdentifiers.columnQualifierText().toString());
+	}
+	
 }
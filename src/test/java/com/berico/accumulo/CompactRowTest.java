@@ -0,0 +1,72 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Test;
+
+public class CompactRowTest {
+	
+	static TreeMap<Key, Value> cells(){
+		
+		TreeMap<Key, Value> cells = new TreeMap<Key, Value>();
+		
+		cells.put(new Key("row1", "a", "x", "", 2L), new Value("new".getBytes()));
+		cells.put(new Key("row1", "a", "x", "", 1L), new Value("old".getBytes()));
+		cells.put(new Key("row1", "a", "y", "", 1L), new Value("ay".getBytes()));
+		cells.put(new Key("row1", "b", "x", "", 1L), new Value("bx".getBytes()));
+		cells.put(new Key("row2", "a", "x", "", 1L), new Value("r2".getBytes()));
+		cells.put(new Key("row3", "c", "z", "", 1L), new Value("r3".getBytes()));
+		
+		return cells;
+	}
+	
+	@Test
+	public void groups_consecutive_cells_by_row(){
+		
+		CompactRowIterator rows = new CompactRowIterator(cells().entrySet().iterator(), false);
+		
+		List<CompactRow> result = new ArrayList<CompactRow>();
+		
+		while (rows.hasNext()){
+			
+			result.add(rows.next());
+		}
+		
+		assertEquals(3, result.size());
+		
+		assertEquals("row1", result.get(0).rowKey());
+		assertEquals(4, result.get(0).size());
+		assertEquals("row2", result.get(1).rowKey());
+		assertEquals("row3", result.get(2).rowKey());
+		assertEquals(1, result.get(2).size());
+	}
+	
+	@Test
+	public void lookup_finds_the_newest_cell_of_a_column(){
+		
+		CompactRow.Builder builder = new CompactRow.Builder();
+		
+		for (Entry<Key, Value> cell : cells().headMap(new Key("row2")).entrySet()){
+			
+			builder.add(cell.getKey(), cell.getValue());
+		}
+		
+		CompactRow row = builder.build();
+		
+		assertEquals("new", row.get("a", "x").toString());
+		assertEquals("ay", row.get("a", "y").toString());
+		assertEquals("bx", row.get(ColumnIdentifiers.compile("b:x")).toString());
+		assertEquals(2L, row.timestamp(row.indexOf("a", "x")));
+		
+		assertNull(row.get("a", "z"));
+		assertNull(row.get("c", "x"));
+		assertFalse(row.contains("", "x"));
+	}
+}
@@ -0,0 +1,95 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.apache.accumulo.typo.encoders.DoubleLexicoder;
+import org.apache.accumulo.typo.encoders.IntegerLexicoder;
+import org.apache.accumulo.typo.encoders.LongLexicoder;
+import org.junit.Test;
+
+public class ConversionUtilsTest {
+	
+	static final long[] LONGS = new long[]{
+		0L, 1L, -1L, 255L, 256L, -256L, -257L,
+		Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE
+	};
+	
+	static final double[] DOUBLES = new double[]{
+		0.0, -0.0, 1.0, -1.0, Math.PI, -Math.E, Double.MAX_VALUE, -Double.MAX_VALUE,
+		Double.MIN_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+	};
+	
+	@Test
+	public void decodeLong_matches_typo_lexicoder(){
+		
+		LongLexicoder lexicoder = new LongLexicoder();
+		
+		Random random = new Random(42);
+		
+		for (int i = 0; i < 10000; i++){
+			
+			long value = (i < LONGS.length)? LONGS[i] : random.nextLong() >> random.nextInt(64);
+			
+			byte[] encoded = lexicoder.encode(value);
+			
+			assertEquals(value, ConversionUtils.decodeLong(encoded, 0, encoded.length));
+			
+			assertEquals(lexicoder.decode(encoded).longValue(), ConversionUtils.toLong(encoded));
+		}
+	}
+	
+	@Test
+	public void decodeInt_matches_typo_lexicoder(){
+		
+		IntegerLexicoder lexicoder = new IntegerLexicoder();
+		
+		Random random = new Random(42);
+		
+		for (int i = 0; i < 10000; i++){
+			
+			int value = (i < LONGS.length)? (int) LONGS[i] : random.nextInt() >> random.nextInt(32);
+			
+			byte[] encoded = lexicoder.encode(value);
+			
+			assertEquals(value, ConversionUtils.decodeInt(encoded, 0, encoded.length));
+			
+			assertEquals(lexicoder.decode(encoded).intValue(), ConversionUtils.toInt(encoded));
+		}
+	}
+	
+	@Test
+	public void decodeDouble_matches_typo_lexicoder(){
+		
+		DoubleLexicoder lexicoder = new DoubleLexicoder();
+		
+		Random random = new Random(42);
+		
+		for (int i = 0; i < 10000; i++){
+			
+			double value = (i < DOUBLES.length)? DOUBLES[i] : random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20);
+			
+			byte[] encoded = lexicoder.encode(value);
+			
+			assertEquals(Double.doubleToRawLongBits(value),
+				Double.doubleToRawLongBits(ConversionUtils.decodeDouble(encoded, 0, encoded.length)));
+		}
+		
+		byte[] nan = lexicoder.encode(Double.NaN);
+		
+		assertTrue(Double.isNaN(ConversionUtils.decodeDouble(nan, 0, nan.length)));
+	}
+	
+	@Test
+	public void primitive_decoders_read_from_an_offset(){
+		
+		byte[] encoded = ConversionUtils.toByteArray(-12345L);
+		
+		byte[] padded = new byte[encoded.length + 3];
+		
+		System.arraycopy(encoded, 0, padded, 2, encoded.length);
+		
+		assertEquals(-12345L, ConversionUtils.decodeLong(padded, 2, encoded.length));
+	}
+}
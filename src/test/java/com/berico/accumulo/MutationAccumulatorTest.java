@@ -0,0 +1,114 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Mutation;
+import org.junit.Test;
+
+import com.berico.accumulo.ValueMutationOps.CompletionHandler;
+
+public class MutationAccumulatorTest {
+	
+	static class CollectingSink implements CompletionHandler {
+		
+		List<Mutation> mutations = new ArrayList<Mutation>();
+		
+		@Override
+		public void complete(Mutation mutation) throws MutationsRejectedException {
+			
+			this.mutations.add(mutation);
+		}
+	}
+	
+	static byte[] bytes(String value){
+		
+		return value.getBytes(ConversionUtils.UTF8);
+	}
+	
+	@Test
+	public void coalesces_cells_of_a_row_into_one_mutation() throws MutationsRejectedException {
+		
+		CollectingSink sink = new CollectingSink();
+		
+		MutationAccumulator accumulator = new MutationAccumulator(sink);
+		
+		accumulator.put("usa.va.manassas", new ColumnIdentifiers("meta:zipcode"), bytes("20110"), 0);
+		accumulator.put("usa.va.manassas", new ColumnIdentifiers("meta:county"), bytes("Prince William"), 0);
+		accumulator.put("usa.va.manassas", new ColumnIdentifiers("stats:population:public"), bytes("37821"), 42L);
+		
+		assertTrue(sink.mutations.isEmpty());
+		assertEquals(1, accumulator.size());
+		
+		accumulator.drain();
+		
+		assertTrue(accumulator.isEmpty());
+		assertEquals(1, sink.mutations.size());
+		
+		Mutation mutation = sink.mutations.get(0);
+		
+		assertEquals("usa.va.manassas", new String(mutation.getRow(), ConversionUtils.UTF8));
+		
+		List<ColumnUpdate> updates = mutation.getUpdates();
+		
+		assertEquals(3, updates.size());
+		assertEquals("zipcode", new String(updates.get(0).getColumnQualifier(), ConversionUtils.UTF8));
+		assertEquals("20110", new String(updates.get(0).getValue(), ConversionUtils.UTF8));
+		assertEquals("county", new String(updates.get(1).getColumnQualifier(), ConversionUtils.UTF8));
+		assertEquals("stats", new String(updates.get(2).getColumnFamily(), ConversionUtils.UTF8));
+		assertEquals("public", new String(updates.get(2).getColumnVisibility(), ConversionUtils.UTF8));
+		assertEquals(42L, updates.get(2).getTimestamp());
+	}
+	
+	@Test
+	public void hands_off_the_oldest_row_when_the_window_is_full() throws MutationsRejectedException {
+		
+		CollectingSink sink = new CollectingSink();
+		
+		MutationAccumulator accumulator = new MutationAccumulator(2, MutationAccumulator.DEFAULT_MAX_MUTATION_BYTES, sink);
+		
+		accumulator.put("row1", new ColumnIdentifiers("meta:a"), bytes("1"), 0);
+		accumulator.put("row2", new ColumnIdentifiers("meta:a"), bytes("2"), 0);
+		accumulator.put("row1", new ColumnIdentifiers("meta:b"), bytes("3"), 0);
+		
+		assertTrue(sink.mutations.isEmpty());
+		
+		accumulator.put("row3", new ColumnIdentifiers("meta:a"), bytes("4"), 0);
+		
+		assertEquals(1, sink.mutations.size());
+		assertEquals("row1", new String(sink.mutations.get(0).getRow(), ConversionUtils.UTF8));
+		assertEquals(2, sink.mutations.get(0).getUpdates().size());
+		assertEquals(2, accumulator.size());
+	}
+	
+	@Test
+	public void hands_off_a_row_once_it_grows_past_the_threshold() throws MutationsRejectedException {
+		
+		CollectingSink sink = new CollectingSink();
+		
+		MutationAccumulator accumulator = new MutationAccumulator(32, 150, sink);
+		
+		accumulator.put("row", new ColumnIdentifiers("meta:a"), new byte[40], 0);
+		accumulator.put("row", new ColumnIdentifiers("meta:b"), new byte[40], 0);
+		
+		assertTrue(sink.mutations.isEmpty());
+		
+		accumulator.put("row", new ColumnIdentifiers("meta:c"), new byte[40], 0);
+		
+		assertEquals(1, sink.mutations.size());
+		assertEquals(3, sink.mutations.get(0).getUpdates().size());
+		assertTrue(accumulator.isEmpty());
+		
+		// The row starts over in a new Mutation.
+		accumulator.put("row", new ColumnIdentifiers("meta:d"), new byte[40], 0);
+		
+		accumulator.drain();
+		
+		assertEquals(2, sink.mutations.size());
+		assertEquals(1, sink.mutations.get(1).getUpdates().size());
+	}
+}
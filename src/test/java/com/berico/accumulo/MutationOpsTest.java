@@ -0,0 +1,40 @@
+package com.berico.accumulo;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.Mutation;
+import org.junit.Test;
+
+public class MutationOpsTest {
+	
+	@Test
+	public void closing_an_unfinished_chain_writes_its_coalesced_rows() throws Exception {
+		
+		BatchWriter writer = mock(BatchWriter.class);
+		
+		Cirrus cirrus = mock(Cirrus.class);
+		cirrus.tableOperations = mock(TableOperations.class);
+		cirrus.tableCache = new TableMetadataCache(cirrus.tableOperations);
+		
+		when(cirrus.lease(anyString(), any(WriterConfig.class))).thenReturn(writer);
+		
+		MutationOps ops = new MutationOps("us_cities", cirrus, WriterConfig.defaults());
+		
+		verify(cirrus).opened(ops);
+		
+		ops.put("usa.va.manassas", "meta", "commonname").value("Manassas");
+		
+		// The row is still open in the coalescing window.
+		verify(writer, never()).addMutation(any(Mutation.class));
+		
+		// What Cirrus.shutdown() does with a chain that was never done.
+		ops.close();
+		
+		verify(writer).addMutation(any(Mutation.class));
+		verify(writer).close();
+		verify(cirrus).closed(ops);
+	}
+}
@@ -0,0 +1,139 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Test;
+
+public class RowBloomFilterTest {
+	
+	@Test
+	public void added_rows_are_never_ruled_out(){
+		
+		RowBloomFilter filter = new RowBloomFilter(10000, 0.01);
+		
+		for (int i = 0; i < 10000; i++){
+			
+			filter.add("usa.va.city" + i);
+		}
+		
+		int falsePositives = 0;
+		
+		for (int i = 0; i < 10000; i++){
+			
+			assertTrue(filter.mightContain("usa.va.city" + i));
+			
+			falsePositives += filter.mightContain("usa.md.city" + i)? 1 : 0;
+		}
+		
+		assertTrue("False positives: " + falsePositives, falsePositives < 300);
+	}
+	
+	@Test
+	public void survives_a_round_trip_through_a_file() throws Exception {
+		
+		RowBloomFilter filter = new RowBloomFilter(100, 0.01);
+		
+		filter.add("usa.va.manassas");
+		
+		File file = File.createTempFile("rows", ".bloom");
+		
+		try {
+			
+			filter.save(file);
+			
+			RowBloomFilter loaded = RowBloomFilter.load(file);
+			
+			assertTrue(loaded.mightContain("usa.va.manassas"));
+			assertFalse(loaded.mightContain("usa.va.reston"));
+			assertTrue(loaded.authorizations().getAuthorizations().isEmpty());
+		}
+		finally {
+			
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void authorizations_survive_a_round_trip_through_a_file() throws Exception {
+		
+		RowBloomFilter filter = new RowBloomFilter(100, 0.01, new Authorizations("SECRET", "PUBLIC"));
+		
+		File file = File.createTempFile("rows", ".bloom");
+		
+		try {
+			
+			filter.save(file);
+			
+			RowBloomFilter loaded = RowBloomFilter.load(file);
+			
+			assertTrue(loaded.hasAuthorizations(new Authorizations("PUBLIC", "SECRET")));
+		}
+		finally {
+			
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void only_rules_out_lookups_with_a_subset_of_its_authorizations(){
+		
+		RowFilters filters = new RowFilters();
+		
+		RowBloomFilter filter = new RowBloomFilter(100, 0.01, new Authorizations("PUBLIC"));
+		
+		filter.add("usa.va.manassas");
+		
+		filters.put("us_cities", filter);
+		
+		assertTrue(filters.isRuledOut("us_cities", new Authorizations("PUBLIC"), "usa.va.reston"));
+		assertTrue(filters.isRuledOut("us_cities", new Authorizations(), "usa.va.reston"));
+		
+		// The row may only be visible to SECRET.
+		assertFalse(filters.isRuledOut("us_cities", new Authorizations("PUBLIC", "SECRET"), "usa.va.reston"));
+		
+		assertFalse(filters.isRuledOut("us_cities", new Authorizations("PUBLIC"), "usa.va.manassas"));
+		assertFalse(filters.isRuledOut("us_states", new Authorizations("PUBLIC"), "usa.va.reston"));
+	}
+	
+	@Test
+	public void a_filter_being_built_rules_nothing_out_but_sees_writes(){
+		
+		RowFilters filters = new RowFilters();
+		
+		RowBloomFilter filter = new RowBloomFilter(100, 0.01);
+		
+		filters.building("us_cities", filter);
+		
+		assertFalse(filters.isRuledOut("us_cities", new Authorizations(), "usa.va.reston"));
+		assertNull(filters.get("us_cities", new Authorizations()));
+		
+		filters.add("us_cities", "usa.va.reston".getBytes());
+		
+		filters.put("us_cities", filter);
+		
+		assertFalse(filters.isRuledOut("us_cities", new Authorizations(), "usa.va.reston"));
+		assertTrue(filters.isRuledOut("us_cities", new Authorizations(), "usa.va.manassas"));
+		assertSame(filter, filters.get("us_cities", new Authorizations()));
+	}
+	
+	@Test
+	public void a_filter_replaces_the_one_built_with_the_same_authorizations(){
+		
+		RowFilters filters = new RowFilters();
+		
+		RowBloomFilter first = new RowBloomFilter(100, 0.01, new Authorizations("PUBLIC"));
+		RowBloomFilter second = new RowBloomFilter(100, 0.01, new Authorizations("PUBLIC"));
+		RowBloomFilter secret = new RowBloomFilter(100, 0.01, new Authorizations("SECRET"));
+		
+		filters.put("us_cities", first);
+		filters.put("us_cities", secret);
+		filters.put("us_cities", second);
+		
+		assertSame(second, filters.get("us_cities", new Authorizations("PUBLIC")));
+		assertSame(secret, filters.get("us_cities", new Authorizations("SECRET")));
+		assertEquals(2, filters.of("us_cities").size());
+	}
+}
@@ -0,0 +1,107 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Test;
+
+public class RowCacheTest {
+	
+	static final Authorizations AUTHS = new Authorizations("SECRET");
+	
+	static List<Entry<Key, Value>> row(String row){
+		
+		List<Entry<Key, Value>> cells = new ArrayList<Entry<Key, Value>>();
+		
+		cells.addAll(CompactRowTest.cells().subMap(new Key(row), new Key(row + "\u0000")).entrySet());
+		
+		return cells;
+	}
+	
+	@Test
+	public void serves_cached_rows_from_off_heap_blocks(){
+		
+		RowCache cache = new RowCache().configure(4 * 256, 256, 60000L);
+		
+		List<Entry<Key, Value>> cells = row("row1");
+		
+		assertNull(cache.get("cities", AUTHS, "row1"));
+		
+		cache.put("cities", AUTHS, "row1", cells);
+		
+		Iterator<Entry<Key, Value>> cached = cache.get("cities", AUTHS, "row1");
+		
+		for (Entry<Key, Value> cell : cells){
+			
+			Entry<Key, Value> copy = cached.next();
+			
+			assertEquals(cell.getKey(), copy.getKey());
+			assertEquals(cell.getValue(), copy.getValue());
+		}
+		
+		assertFalse(cached.hasNext());
+		
+		assertNull(cache.get("cities", new Authorizations(), "row1"));
+		
+		cache.invalidate("cities", "row1");
+		
+		assertNull(cache.get("cities", AUTHS, "row1"));
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.invalidations());
+	}
+	
+	@Test
+	public void clock_spares_recently_read_rows(){
+		
+		RowCache cache = new RowCache().configure(2 * 256, 256, 60000L);
+		
+		cache.put("cities", AUTHS, "row1", row("row1"));
+		cache.put("cities", AUTHS, "row2", row("row2"));
+		
+		assertNotNull(cache.get("cities", AUTHS, "row1"));
+		
+		cache.put("cities", AUTHS, "row3", row("row3"));
+		
+		assertNotNull(cache.get("cities", AUTHS, "row1"));
+		assertNull(cache.get("cities", AUTHS, "row2"));
+		assertNotNull(cache.get("cities", AUTHS, "row3"));
+		assertEquals(1, cache.evictions());
+	}
+	
+	@Test
+	public void rows_larger_than_a_block_are_not_cached(){
+		
+		RowCache cache = new RowCache().configure(2 * 32, 32, 60000L);
+		
+		cache.put("cities", AUTHS, "row1", row("row1"));
+		
+		assertNull(cache.get("cities", AUTHS, "row1"));
+		assertEquals(1, cache.oversized());
+	}
+	
+	@Test
+	public void a_row_scanned_before_an_invalidation_is_not_cached(){
+		
+		RowCache cache = new RowCache().configure(4 * 256, 256, 60000L);
+		
+		long stamp = cache.stamp("cities", "row1");
+		
+		// A write to the row is flushed while the old row is being scanned.
+		cache.invalidate("cities", "row1");
+		
+		cache.put("cities", AUTHS, "row1", row("row1"), stamp);
+		
+		assertNull(cache.get("cities", AUTHS, "row1"));
+		
+		cache.put("cities", AUTHS, "row1", row("row1"), cache.stamp("cities", "row1"));
+		
+		assertNotNull(cache.get("cities", AUTHS, "row1"));
+	}
+}
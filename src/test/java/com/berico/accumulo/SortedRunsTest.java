@@ -0,0 +1,124 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SortedRunsTest {
+	
+	File runDirectory;
+	File outputDirectory;
+	
+	SortedRuns sortedRuns;
+	
+	@Before
+	public void setUp() throws Exception {
+		
+		this.runDirectory = BulkLoadOps.temporaryDirectory("runs");
+		this.outputDirectory = BulkLoadOps.temporaryDirectory("tablets");
+		
+		// Spill a run every two cells.
+		this.sortedRuns = new SortedRuns(this.runDirectory, 2);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		
+		this.sortedRuns.delete();
+		
+		FileSystem.getLocal(this.sortedRuns.conf).delete(new Path(this.outputDirectory.toURI()), true);
+	}
+	
+	void add(String row, String value) throws Exception {
+		
+		this.sortedRuns.add(new Key(new Text(row), new Text("meta"), new Text("name"), 1L), new Value(value.getBytes()), 1);
+	}
+	
+	List<String> read(String file) throws Exception {
+		
+		List<String> cells = new ArrayList<String>();
+		
+		FileSKVIterator reader = FileOperations.getInstance().openReader(
+			new File(this.outputDirectory, file).getPath(), true,
+			FileSystem.getLocal(this.sortedRuns.conf), this.sortedRuns.conf, this.sortedRuns.accumuloConf);
+		
+		try {
+			
+			while (reader.hasTop()){
+				
+				cells.add(reader.getTopKey().getRow() + "=" + reader.getTopValue());
+				
+				reader.next();
+			}
+		}
+		finally {
+			
+			reader.close();
+		}
+		
+		return cells;
+	}
+	
+	@Test
+	public void merges_unsorted_runs_into_one_sorted_file_per_tablet() throws Exception {
+		
+		add("usa.va.reston", "reston");
+		add("usa.md.baltimore", "baltimore");
+		add("usa.wv.wheeling", "wheeling");
+		add("usa.va.manassas", "manassas");
+		add("usa.md.annapolis", "annapolis");
+		add("usa.va.reston", "reston, again");
+		add("usa.ca.fresno", "fresno");
+		
+		assertEquals(3, this.sortedRuns.size());
+		
+		this.sortedRuns.spill();
+		
+		// Tablets: (, usa.md.baltimore], (usa.md.baltimore, usa.ny], (usa.ny, usa.va.zzz], (usa.va.zzz, )
+		List<Text> splits = Arrays.asList(new Text("usa.md.baltimore"), new Text("usa.ny"), new Text("usa.va.zzz"));
+		
+		int files = this.sortedRuns.merge(splits, new Path(this.outputDirectory.toURI()));
+		
+		assertEquals(3, files);
+		
+		assertEquals(Arrays.asList("usa.ca.fresno=fresno", "usa.md.annapolis=annapolis", "usa.md.baltimore=baltimore"),
+			read("tablet-00000.rf"));
+		
+		// The second tablet holds no cells, so has no file.
+		assertFalse(new File(this.outputDirectory, "tablet-00001.rf").exists());
+		
+		// The later put of the same key replaces the earlier one.
+		assertEquals(Arrays.asList("usa.va.manassas=manassas", "usa.va.reston=reston, again"),
+			read("tablet-00002.rf"));
+		
+		assertEquals(Arrays.asList("usa.wv.wheeling=wheeling"), read("tablet-00003.rf"));
+	}
+	
+	@Test
+	public void delete_removes_the_runs_and_their_directory() throws Exception {
+		
+		add("usa.va.reston", "reston");
+		add("usa.va.manassas", "manassas");
+		
+		assertEquals(1, this.sortedRuns.size());
+		
+		this.sortedRuns.delete();
+		
+		assertEquals(0, this.sortedRuns.size());
+		assertFalse(this.runDirectory.exists());
+	}
+}
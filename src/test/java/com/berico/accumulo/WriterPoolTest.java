@@ -0,0 +1,105 @@
+package com.berico.accumulo;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriterPoolTest {
+	
+	Connector connector;
+	
+	BatchWriter first;
+	BatchWriter second;
+	
+	WriterPool pool;
+	
+	Cirrus cirrus;
+	
+	@Before
+	public void setUp() throws Exception {
+		
+		this.connector = mock(Connector.class);
+		
+		this.first = mock(BatchWriter.class);
+		this.second = mock(BatchWriter.class);
+		
+		when(this.connector.createBatchWriter(anyString(), anyLong(), anyLong(), anyInt()))
+			.thenReturn(this.first, this.second);
+		
+		this.pool = new WriterPool(this.connector);
+		
+		this.cirrus = mock(Cirrus.class);
+		this.cirrus.tableOperations = mock(TableOperations.class);
+		this.cirrus.tableCache = new TableMetadataCache(this.cirrus.tableOperations);
+		this.cirrus.rowFilters = new RowFilters();
+		this.cirrus.writerPool = this.pool;
+	}
+	
+	@After
+	public void tearDown(){
+		
+		this.pool.close();
+	}
+	
+	@Test
+	public void a_lease_after_rename_gets_a_new_writer() throws Exception {
+		
+		BatchWriter lease = this.pool.lease("us_cities");
+		
+		new TableOps("us_cities", this.cirrus).rename("cities");
+		
+		// A new table under the old name must not get the renamed table's writer.
+		BatchWriter renewed = this.pool.lease("us_cities");
+		
+		verify(this.connector, times(2)).createBatchWriter(eq("us_cities"), anyLong(), anyLong(), anyInt());
+		
+		renewed.close();
+		
+		// The old writer is flushed and closed once its last lease is returned.
+		verify(this.first, never()).close();
+		
+		lease.close();
+		
+		verify(this.first).flush();
+		verify(this.first).close();
+		verify(this.second, never()).close();
+	}
+	
+	@Test
+	public void a_lease_after_delete_gets_a_new_writer() throws Exception {
+		
+		this.pool.lease("us_cities").close();
+		
+		new TableOps("us_cities", this.cirrus).delete();
+		
+		// No leases were outstanding, so the writer is closed right away.
+		verify(this.first).close();
+		
+		assertEquals(0, this.pool.size());
+		
+		this.pool.lease("us_cities").close();
+		
+		verify(this.connector, times(2)).createBatchWriter(eq("us_cities"), anyLong(), anyLong(), anyInt());
+		assertEquals(1, this.pool.size());
+	}
+	
+	@Test
+	public void evict_leaves_other_tables_alone() throws Exception {
+		
+		this.pool.lease("us_cities").close();
+		this.pool.lease("us_cities_2").close();
+		
+		this.pool.evict("us_cities");
+		
+		verify(this.first).close();
+		verify(this.second, never()).close();
+		assertEquals(1, this.pool.size());
+	}
+}